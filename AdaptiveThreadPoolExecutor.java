@@ -0,0 +1,275 @@
+// AdaptiveThreadPoolExecutor.java
+// A ThreadPoolExecutor that re-sizes its core pool at runtime instead of relying
+// on a hand-picked corePoolSize. Every adjustment interval it looks at:
+//   - Little's law:  threads needed = arrival rate x mean service time (+ backlog)
+//   - CPU share of the service time: CPU-bound tasks are capped near the core
+//     count, IO-bound tasks may use many more threads (cores / cpuFraction)
+//   - queue-wait trend: AIMD-style back-off when adding threads stops helping
+//     and the machine is already saturated
+// and then moves corePoolSize towards the target within [minThreads, maxThreads].
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class AdaptiveThreadPoolExecutor extends InstrumentedThreadPoolExecutor {
+
+    private static final double HEADROOM = 1.2;
+    private static final double TARGET_CPU_UTILIZATION = 0.9;
+    private static final double BACKOFF_FACTOR = 0.9;
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported;
+    private final ThreadLocal<long[]> taskCpuStart = ThreadLocal.withInitial(() -> new long[1]);
+    private final ScheduledExecutorService controller;
+
+    private final LongAdder intervalServiceNanos = new LongAdder();
+    private final LongAdder intervalCpuNanos = new LongAdder();
+    private final LongAdder intervalQueueWaitNanos = new LongAdder();
+    private final LongAdder intervalCompleted = new LongAdder();
+
+    private long lastSubmitted;
+    private long lastTickNanos = System.nanoTime();
+    private double previousQueueWaitNanos;
+    private double smoothedTarget;
+    private volatile String lastDecision = "none yet";
+
+    public AdaptiveThreadPoolExecutor(int minThreads, int maxThreads, BlockingQueue<Runnable> workQueue,
+                                      RejectedExecutionHandler handler, long adjustInterval, TimeUnit unit) {
+        super(minThreads, maxThreads, 30L, TimeUnit.SECONDS, workQueue, handler);
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("Require 1 <= minThreads <= maxThreads");
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.smoothedTarget = minThreads;
+        this.cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+        if (cpuTimeSupported && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        this.controller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adaptive-pool-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        controller.scheduleAtFixedRate(this::adjust, adjustInterval, adjustInterval, unit);
+    }
+
+    public AdaptiveThreadPoolExecutor(int minThreads, int maxThreads) {
+        this(minThreads, maxThreads, new LinkedBlockingQueue<>(), new AbortPolicy(), 250, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (cpuTimeSupported) {
+            taskCpuStart.get()[0] = threadMXBean.getCurrentThreadCpuTime();
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        if (cpuTimeSupported) {
+            intervalCpuNanos.add(threadMXBean.getCurrentThreadCpuTime() - taskCpuStart.get()[0]);
+        }
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    protected void taskTimed(long queueWaitNanos, long serviceNanos) {
+        intervalQueueWaitNanos.add(queueWaitNanos);
+        intervalServiceNanos.add(serviceNanos);
+        intervalCompleted.increment();
+    }
+
+    @Override
+    protected void terminated() {
+        controller.shutdownNow();
+        super.terminated();
+    }
+
+    public String getLastDecision() {
+        return lastDecision;
+    }
+
+    private void adjust() {
+        try {
+            long now = System.nanoTime();
+            double seconds = (now - lastTickNanos) / 1e9;
+            lastTickNanos = now;
+
+            long submitted = getSubmittedCount();
+            double arrivalRate = (submitted - lastSubmitted) / seconds;
+            lastSubmitted = submitted;
+
+            long completed = intervalCompleted.sumThenReset();
+            double serviceNanos = intervalServiceNanos.sumThenReset();
+            double cpuNanos = intervalCpuNanos.sumThenReset();
+            double queueWaitNanos = intervalQueueWaitNanos.sumThenReset();
+            if (completed == 0) {
+                // Nothing finished: if work is queued, the pool is stuck behind long tasks
+                if (!getQueue().isEmpty()) {
+                    resize(smoothedTarget * 2, "no completions with backlog");
+                }
+                return;
+            }
+
+            double meanService = serviceNanos / completed;
+            double meanQueueWait = queueWaitNanos / completed;
+            double cpuFraction = cpuTimeSupported ? Math.min(1.0, Math.max(0.01, cpuNanos / serviceNanos)) : 1.0;
+
+            // Little's law plus enough extra threads to drain the backlog within one interval
+            double littles = arrivalRate * meanService / 1e9;
+            double backlog = getQueue().size() * meanService / (seconds * 1e9);
+            double demand = (littles + backlog) * HEADROOM;
+
+            // More threads than this only adds context switching for this task mix
+            double cpuCap = cores * TARGET_CPU_UTILIZATION / cpuFraction;
+            double target = Math.min(demand, cpuCap);
+
+            // Queue wait grew although we are at the CPU cap: back off multiplicatively
+            boolean saturated = getPoolSize() >= cpuCap && meanQueueWait > previousQueueWaitNanos * 1.5;
+            previousQueueWaitNanos = meanQueueWait;
+            if (saturated) {
+                target = Math.min(target, getCorePoolSize() * BACKOFF_FACTOR);
+            }
+
+            resize(target, String.format(Locale.ROOT,
+                    "arrivals=%.0f/s service=%s cpu=%.0f%% queue=%d -> littles=%.1f cpuCap=%.1f%s",
+                    arrivalRate, LatencyHistogram.format((long) meanService), cpuFraction * 100,
+                    getQueue().size(), littles, cpuCap, saturated ? " (backoff)" : ""));
+        } catch (RuntimeException e) {
+            // Never let a bad sample kill the scheduled controller
+            lastDecision = "controller error: " + e;
+        }
+    }
+
+    private void resize(double target, String reason) {
+        // Grow quickly, shrink slowly
+        double alpha = target > smoothedTarget ? 0.7 : 0.2;
+        smoothedTarget = alpha * target + (1 - alpha) * smoothedTarget;
+        int newCore = (int) Math.max(minThreads, Math.min(maxThreads, Math.ceil(smoothedTarget)));
+        if (newCore != getCorePoolSize()) {
+            setCorePoolSize(newCore);
+        }
+        lastDecision = reason + " => core=" + newCore;
+    }
+}
+
+// Compares the adaptive pool with hand-tuned fixed pools on workloads shaped like
+// ExecutorServiceDemo's tasks: SimpleTask (sleep-dominated) and CalculationTask
+// (compute-dominated), scaled down from seconds to milliseconds. Tasks arrive at
+// a fixed rate (open loop), so an undersized pool shows up as queueing latency
+// and an oversized one as CPU contention.  Usage: java AdaptivePoolBenchmark [seconds per phase]
+class AdaptivePoolBenchmark {
+
+    private static final int IO_RATE = 2000;        // tasks/s; needs ~15 threads at 7.5ms each
+    private static long calculationNanos;
+
+    public static void main(String[] args) throws Exception {
+        double phaseSeconds = args.length > 0 ? Double.parseDouble(args[0]) : 2.0;
+        int cores = Runtime.getRuntime().availableProcessors();
+        calibrate();
+        int cpuRate = (int) (0.7 * cores * 1e9 / calculationNanos);
+        System.out.printf(Locale.ROOT, "=== Adaptive vs fixed pool sizing (%d cores, %.1fs per phase, "
+                + "io %d/s, cpu %d/s) ===%n", cores, phaseSeconds, IO_RATE, cpuRate);
+
+        int[] fixedSizes = {2, 4, cores, cores * 4, 16, 64};
+        for (int size : fixedSizes) {
+            run("fixed(" + size + ")", new InstrumentedThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>()), phaseSeconds, cpuRate);
+        }
+        AdaptiveThreadPoolExecutor adaptive = new AdaptiveThreadPoolExecutor(2, 256, new LinkedBlockingQueue<>(),
+                new ThreadPoolExecutor.AbortPolicy(), 100, TimeUnit.MILLISECONDS);
+        run("adaptive(2..256)", adaptive, phaseSeconds, cpuRate);
+        System.out.println("Last adaptive decision: " + adaptive.getLastDecision());
+    }
+
+    private static void run(String label, ThreadPoolExecutor executor, double phaseSeconds, int cpuRate)
+            throws Exception {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-17s", label));
+        String[] phases = {"io", "cpu", "mixed"};
+        int[] rates = {IO_RATE, cpuRate, (IO_RATE + cpuRate) / 4};
+        for (int p = 0; p < phases.length; p++) {
+            String phase = phases[p];
+            int tasks = (int) (rates[p] * phaseSeconds);
+            LatencyHistogram latency = new LatencyHistogram();
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            Random random = new Random(7);
+            long start = System.nanoTime();
+            long interval = 1_000_000_000L / rates[p];
+
+            for (int i = 0; i < tasks; i++) {
+                long due = start + i * interval;
+                long wait = due - System.nanoTime();
+                if (wait > 100_000) {
+                    LockSupport.parkNanos(wait);
+                }
+                boolean io = phase.equals("io") || (phase.equals("mixed") && random.nextBoolean());
+                int sleepMillis = 5 + random.nextInt(5);
+                int number = i;
+                futures.add(executor.submit(() -> {
+                    if (io) {
+                        simpleTask(sleepMillis);
+                    } else {
+                        calculationTask(number);
+                    }
+                    latency.record(System.nanoTime() - due);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            line.append(String.format(Locale.ROOT, " | %-5s %6.0f/s p99=%-8s", phase,
+                    tasks / (elapsed / 1e9), LatencyHistogram.format(latency.percentileNanos(0.99))));
+        }
+        line.append(" | threads=").append(executor.getLargestPoolSize());
+        System.out.println(line);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    // Warms up the JIT and measures one calculation on one thread
+    private static void calibrate() {
+        long sink = 0;
+        for (int i = 0; i < 2_000; i++) {
+            sink += calculationTask(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            sink += calculationTask(i);
+        }
+        calculationNanos = Math.max(1, (System.nanoTime() - start) / 500);
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    // Shape of ExecutorServiceDemo.SimpleTask: mostly sleeping
+    private static void simpleTask(int sleepMillis) {
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Shape of ExecutorServiceDemo.CalculationTask: pure computation
+    private static long calculationTask(int number) {
+        long acc = number;
+        for (int i = 0; i < 200_000; i++) {
+            acc = acc * 31 + (acc >>> 7) + (long) number * i;
+        }
+        return acc;
+    }
+}
\ No newline at end of file
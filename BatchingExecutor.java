@@ -0,0 +1,229 @@
+// BatchingExecutor.java
+// Facade over an ExecutorService for very small tasks. Submitted tasks are
+// collected into chunks; a chunk is handed to the delegate as a single task
+// once it reaches maxBatchSize, or after the linger time when traffic is light.
+// The chunk runs on one worker and its futures are completed together at the
+// end, so a tiny computation no longer pays for its own queue node, FutureTask
+// and worker wakeup.
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BatchingExecutor implements Executor {
+
+    private final ExecutorService delegate;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService flusher;
+    private final Object lock = new Object();
+    private List<Entry<?>> pending;
+    private boolean shutdown;
+
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder lingerFlushes = new LongAdder();
+
+    public BatchingExecutor(ExecutorService delegate, int maxBatchSize, long linger, TimeUnit unit) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.pending = new ArrayList<>(maxBatchSize);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batching-executor-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // One periodic check instead of a timer per batch; a partial batch waits at most ~linger
+        flusher.scheduleWithFixedDelay(this::lingerFlush, linger, linger, unit);
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        Entry<T> entry = new Entry<>(task);
+        List<Entry<?>> full = null;
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("BatchingExecutor has been shut down");
+            }
+            pending.add(entry);
+            if (pending.size() >= maxBatchSize) {
+                full = swap();
+            }
+        }
+        tasks.increment();
+        if (full != null) {
+            dispatch(full);
+        }
+        return entry.future;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submit(Executors.callable(command));
+    }
+
+    // Sends the current partial batch without waiting for the linger time
+    public void flush() {
+        List<Entry<?>> batch;
+        synchronized (lock) {
+            batch = pending.isEmpty() ? null : swap();
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    // Flushes what is pending and stops accepting tasks; the delegate is left running
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+        }
+        flush();
+        flusher.shutdownNow();
+    }
+
+    public String report() {
+        long batchCount = batches.sum();
+        return String.format(Locale.ROOT, "tasks=%d batches=%d avgBatch=%.1f lingerFlushes=%d",
+                tasks.sum(), batchCount, batchCount == 0 ? 0.0 : (double) tasks.sum() / batchCount,
+                lingerFlushes.sum());
+    }
+
+    private void lingerFlush() {
+        List<Entry<?>> batch;
+        synchronized (lock) {
+            batch = pending.isEmpty() ? null : swap();
+        }
+        if (batch != null) {
+            lingerFlushes.increment();
+            dispatch(batch);
+        }
+    }
+
+    private List<Entry<?>> swap() {
+        List<Entry<?>> batch = pending;
+        pending = new ArrayList<>(maxBatchSize);
+        return batch;
+    }
+
+    private void dispatch(List<Entry<?>> batch) {
+        batches.increment();
+        try {
+            delegate.execute(() -> runBatch(batch));
+        } catch (RejectedExecutionException e) {
+            for (Entry<?> entry : batch) {
+                entry.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static void runBatch(List<Entry<?>> batch) {
+        int size = batch.size();
+        Object[] results = new Object[size];
+        Throwable[] failures = new Throwable[size];
+        for (int i = 0; i < size; i++) {
+            Entry<?> entry = batch.get(i);
+            if (entry.future.isDone()) {
+                continue; // cancelled while waiting in the batch
+            }
+            try {
+                results[i] = entry.task.call();
+            } catch (Throwable t) {
+                failures[i] = t;
+            }
+        }
+        // Complete every future in one pass once the whole chunk has run
+        for (int i = 0; i < size; i++) {
+            if (failures[i] != null) {
+                batch.get(i).future.completeExceptionally(failures[i]);
+            } else {
+                batch.get(i).complete(results[i]);
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+        final Callable<T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Entry(Callable<T> task) {
+            this.task = task;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+}
+
+// Throughput of millions of tiny CalculationTask-style computations: plain submit
+// on a fixed pool vs BatchingExecutor with a few batch sizes.
+// Usage: java BatchingExecutorBenchmark [tasks]
+class BatchingExecutorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.printf(Locale.ROOT, "=== %d tiny tasks, fixed pool of %d threads ===%n", taskCount, threads);
+
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "-- warm-up --" : "-- measured --");
+            runPlain(taskCount, threads);
+            for (int batchSize : new int[]{16, 64, 256}) {
+                runBatched(taskCount, threads, batchSize);
+            }
+        }
+    }
+
+    private static void runPlain(int taskCount, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>(taskCount);
+        long start = System.nanoTime();
+        for (int i = 0; i < taskCount; i++) {
+            int number = i;
+            futures.add(pool.submit(() -> square(number)));
+        }
+        long sum = 0;
+        for (Future<Integer> future : futures) {
+            sum += future.get();
+        }
+        print("plain submit", taskCount, System.nanoTime() - start, sum, "");
+        pool.shutdown();
+    }
+
+    private static void runBatched(int taskCount, int threads, int batchSize) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BatchingExecutor batching = new BatchingExecutor(pool, batchSize, 1, TimeUnit.MILLISECONDS);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(taskCount);
+        long start = System.nanoTime();
+        for (int i = 0; i < taskCount; i++) {
+            int number = i;
+            futures.add(batching.submit(() -> square(number)));
+        }
+        batching.flush();
+        long sum = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            sum += future.get();
+        }
+        print("batched(" + batchSize + ")", taskCount, System.nanoTime() - start, sum, batching.report());
+        batching.shutdown();
+        pool.shutdown();
+    }
+
+    // The arithmetic of ExecutorServiceDemo.CalculationTask without the simulated sleep
+    private static int square(int number) {
+        return number * number;
+    }
+
+    private static void print(String label, int taskCount, long nanos, long checksum, String details) {
+        System.out.printf(Locale.ROOT, "%-14s %6.0f ms %,12.0f tasks/s  checksum=%d %s%n",
+                label, nanos / 1e6, taskCount / (nanos / 1e9), checksum, details);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+// BoundedCompletionService.java
+// A CompletionService that never has more than maxInFlight tasks outstanding.
+// A task counts as in flight from submit() until its future is taken back out
+// with take()/poll(), so finished-but-unconsumed results are bounded too.
+// When the limit is reached the producer either blocks or gets a
+// RejectedExecutionException, depending on the OverflowPolicy.
+//
+// forEachCompleted() drives a lazy Iterator/Stream of Callables through the
+// service and hands each finished future to a callback, so memory stays
+// proportional to maxInFlight no matter how long the input is.
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class BoundedCompletionService<V> implements CompletionService<V> {
+
+    public enum OverflowPolicy {
+        BLOCK,
+        REJECT
+    }
+
+    private final Executor executor;
+    private final int maxInFlight;
+    private final OverflowPolicy overflowPolicy;
+    private final Semaphore permits;
+    private final BlockingQueue<Future<V>> completionQueue = new LinkedBlockingQueue<>();
+
+    public BoundedCompletionService(Executor executor, int maxInFlight) {
+        this(executor, maxInFlight, OverflowPolicy.BLOCK);
+    }
+
+    public BoundedCompletionService(Executor executor, int maxInFlight, OverflowPolicy overflowPolicy) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.overflowPolicy = overflowPolicy;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public Future<V> submit(Callable<V> task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return enqueue(new QueueingFuture(task));
+    }
+
+    @Override
+    public Future<V> submit(Runnable task, V result) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return enqueue(new QueueingFuture(Executors.callable(task, result)));
+    }
+
+    @Override
+    public Future<V> take() throws InterruptedException {
+        Future<V> future = completionQueue.take();
+        permits.release();
+        return future;
+    }
+
+    @Override
+    public Future<V> poll() {
+        Future<V> future = completionQueue.poll();
+        if (future != null) {
+            permits.release();
+        }
+        return future;
+    }
+
+    @Override
+    public Future<V> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Future<V> future = completionQueue.poll(timeout, unit);
+        if (future != null) {
+            permits.release();
+        }
+        return future;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    // Submits tasks from the iterator as capacity frees up and passes every
+    // completed future (already done, so get() does not block) to the consumer.
+    // Runs on the calling thread, which is both producer and consumer, so it
+    // never waits on the overflow policy. Returns the number of tasks processed.
+    public long forEachCompleted(Iterator<? extends Callable<V>> tasks, Consumer<? super Future<V>> consumer)
+            throws InterruptedException {
+        long processed = 0;
+        while (tasks.hasNext()) {
+            QueueingFuture future = new QueueingFuture(tasks.next());
+            // Deliver whatever is already done, then wait only if we are full
+            for (Future<V> done; (done = poll()) != null; processed++) {
+                consumer.accept(done);
+            }
+            while (!permits.tryAcquire()) {
+                consumer.accept(take());
+                processed++;
+            }
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        while (getInFlight() > 0) {
+            consumer.accept(take());
+            processed++;
+        }
+        return processed;
+    }
+
+    public long forEachCompleted(Stream<? extends Callable<V>> tasks, Consumer<? super Future<V>> consumer)
+            throws InterruptedException {
+        return forEachCompleted(tasks.iterator(), consumer);
+    }
+
+    private Future<V> enqueue(QueueingFuture future) {
+        acquirePermit();
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+        return future;
+    }
+
+    private void acquirePermit() {
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException("In-flight limit of " + maxInFlight + " reached");
+            }
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for capacity", e);
+        }
+    }
+
+    private final class QueueingFuture extends FutureTask<V> {
+        QueueingFuture(Callable<V> task) {
+            super(task);
+        }
+
+        @Override
+        protected void done() {
+            completionQueue.add(this);
+        }
+    }
+
+    // Streams a million small tasks through 64 in-flight slots and shows that the
+    // heap does not grow with the input size
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        BoundedCompletionService<Long> service = new BoundedCompletionService<>(executor, 64);
+        Runtime runtime = Runtime.getRuntime();
+        long[] sum = new long[1];
+        long[] peakHeap = new long[1];
+
+        long start = System.nanoTime();
+        Stream<Callable<Long>> tasks = IntStream.range(0, count).mapToObj(i -> () -> (long) i * i % 1_000);
+        long processed = service.forEachCompleted(tasks, future -> {
+            try {
+                sum[0] += future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+            if ((sum[0] & 0xFFFF) == 0) {
+                peakHeap[0] = Math.max(peakHeap[0], runtime.totalMemory() - runtime.freeMemory());
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.ROOT, "processed=%d sum=%d in %.2fs (%.0f tasks/s), peak heap sample %d MB%n",
+                processed, sum[0], seconds, processed / seconds, peakHeap[0] >> 20);
+        executor.shutdown();
+    }
+}
\ No newline at end of file
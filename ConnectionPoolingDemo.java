@@ -0,0 +1,587 @@
+// ConnectionPoolingDemo.java
+// A small JDBC connection pool and a demo of what it buys over opening a
+// connection per request.
+//
+//   - borrow is lock-free: a thread first retries the connections it returned
+//     most recently (thread-affine fast path), then scans the shared list, and
+//     each connection is claimed with a CAS on its state, never with a lock
+//   - a returned connection is handed straight to a thread that is waiting for
+//     one, if there is any
+//   - a connection is validated (isValid) on borrow only when it has been idle
+//     longer than validateAfterIdle; broken connections are evicted and replaced
+//   - leak detection: a connection held longer than the threshold is reported
+//     with the stack trace of the code that borrowed it
+//   - callers get a proxy whose close() returns the connection to the pool;
+//     statements it creates report that proxy from getConnection(), so closing
+//     it through a statement cannot close the physical connection
+//
+// Usage: java ConnectionPoolingDemo [jdbcUrl user password]
+//        (without arguments a simulated database is used)
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class ConnectionPoolingDemo {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Connection Pooling Demo Started\n");
+        ConnectionPool.ConnectionFactory factory;
+        if (args.length >= 3) {
+            factory = ConnectionPool.driverManager(args[0], args[1], args[2]);
+        } else {
+            System.out.println("No JDBC URL given, using a simulated database (20 ms to connect)\n");
+            factory = SimulatedDatabase::connect;
+        }
+
+        // 1. Opening a connection per query versus borrowing one from a pool
+        int threads = 8;
+        int queriesPerThread = 25;
+        long start = System.nanoTime();
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < queriesPerThread; i++) {
+                try (Connection connection = factory.create()) {
+                    connection.getAutoCommit(); // stands in for a query
+                }
+            }
+        });
+        System.out.printf(Locale.ROOT, "Unpooled: %d queries in %.0f ms%n", threads * queriesPerThread,
+                (System.nanoTime() - start) / 1e6);
+
+        try (ConnectionPool pool = new ConnectionPool(factory, 4, 5_000, 200, 2_000, TimeUnit.MILLISECONDS)) {
+            start = System.nanoTime();
+            runConcurrently(threads, () -> {
+                for (int i = 0; i < queriesPerThread; i++) {
+                    try (Connection connection = pool.getConnection()) {
+                        connection.getAutoCommit();
+                    }
+                }
+            });
+            System.out.printf(Locale.ROOT, "Pooled:   %d queries in %.0f ms (4 connections)%n%n",
+                    threads * queriesPerThread, (System.nanoTime() - start) / 1e6);
+
+            // 2. Raw borrow/return throughput; most borrows hit the thread-local fast path
+            int borrowsPerThread = 200_000;
+            start = System.nanoTime();
+            runConcurrently(threads, () -> {
+                for (int i = 0; i < borrowsPerThread; i++) {
+                    pool.getConnection().close();
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "Borrow/return: %,.0f ops/s with %d threads%n",
+                    threads * borrowsPerThread / seconds, threads);
+            System.out.println("  " + pool.report() + "\n");
+
+            // 3. The database restarts: idle connections fail validation and are replaced
+            if (args.length < 3) {
+                SimulatedDatabase.restart();
+                Thread.sleep(300);
+                try (Connection connection = pool.getConnection()) {
+                    System.out.println("After a database restart, borrowed a working connection: "
+                            + !connection.isClosed() + " (getAutoCommit=" + connection.getAutoCommit() + ")");
+                }
+                System.out.println("  " + pool.report() + "\n");
+            }
+        }
+
+        // 4. Every connection is busy: the next borrow times out instead of hanging
+        try (ConnectionPool pool = new ConnectionPool(factory, 2, 200, 200, 0, TimeUnit.MILLISECONDS)) {
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            try {
+                pool.getConnection();
+            } catch (SQLTimeoutException e) {
+                System.out.println("Timeout: " + e.getMessage() + "\n");
+            } finally {
+                first.close();
+                second.close();
+            }
+        }
+
+        // 5. A connection that is never returned is reported with the borrower's stack trace
+        try (ConnectionPool pool = new ConnectionPool(factory, 2, 1_000, 200, 100, TimeUnit.MILLISECONDS)) {
+            Connection leaked = pool.getConnection();
+            Thread.sleep(400);
+            leaked.close();
+            System.out.println("  " + pool.report());
+        }
+
+        System.out.println("\nConnection Pooling Demo Completed");
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    private static void runConcurrently(int threads, SqlWork work) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                work.run();
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Connections that take 20 ms to open and stop working after restart()
+    static final class SimulatedDatabase {
+        private static volatile int generation;
+
+        static Connection connect() throws SQLException {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while connecting", e);
+            }
+            int connectedGeneration = generation;
+            boolean[] closed = {false};
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, methodArgs) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                closed[0] = true;
+                                return null;
+                            case "isClosed":
+                                return closed[0];
+                            case "isValid":
+                                return !closed[0] && connectedGeneration == generation;
+                            case "toString":
+                                return "SimulatedConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == methodArgs[0];
+                            default:
+                                if (connectedGeneration != generation) {
+                                    throw new SQLNonTransientConnectionException("Connection reset", "08006");
+                                }
+                                return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+                        }
+                    });
+        }
+
+        static void restart() {
+            generation++;
+        }
+    }
+
+    // Lock-free JDBC connection pool; see the top of the file for how borrowing works.
+    // JdbcInsertDemo's database worker takes its connections from one of these.
+    static final class ConnectionPool implements AutoCloseable {
+
+        @FunctionalInterface
+        interface ConnectionFactory {
+            Connection create() throws SQLException;
+        }
+
+        private static final int NOT_IN_USE = 0;
+        private static final int IN_USE = 1;
+        private static final int REMOVED = -1;
+        private static final int THREAD_LOCAL_LIMIT = 16;
+        private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+        private static final long MAX_HANDOFF_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+        private final ConnectionFactory factory;
+        private final int maxSize;
+        private final long connectionTimeoutNanos;
+        private final long validateAfterIdleNanos;
+        private final long leakThresholdNanos;
+
+        private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<List<WeakReference<PoolEntry>>> recentlyReturned =
+                ThreadLocal.withInitial(() -> new ArrayList<>(THREAD_LOCAL_LIMIT));
+        private final SynchronousQueue<PoolEntry> handoff = new SynchronousQueue<>(true);
+        private final AtomicInteger waiters = new AtomicInteger();
+        private final AtomicInteger totalConnections = new AtomicInteger(); // includes ones being opened
+        private final HashedWheelScheduler leakTimer;
+        private volatile boolean closed;
+
+        private final LatencyHistogram borrowWait = new LatencyHistogram();
+        private final LongAdder borrows = new LongAdder();
+        private final LongAdder threadLocalHits = new LongAdder();
+        private final LongAdder handoffs = new LongAdder();
+        private final LongAdder created = new LongAdder();
+        private final LongAdder validationFailures = new LongAdder();
+        private final LongAdder evicted = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder leaks = new LongAdder();
+
+        // A leakThreshold of 0 disables leak detection
+        ConnectionPool(ConnectionFactory factory, int maxSize, long connectionTimeout, long validateAfterIdle,
+                       long leakThreshold, TimeUnit unit) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("maxSize must be positive");
+            }
+            this.factory = factory;
+            this.maxSize = maxSize;
+            this.connectionTimeoutNanos = unit.toNanos(connectionTimeout);
+            this.validateAfterIdleNanos = unit.toNanos(validateAfterIdle);
+            this.leakThresholdNanos = unit.toNanos(leakThreshold);
+            // Leak timers are almost always cancelled, which is what the timing wheel is for
+            this.leakTimer = leakThreshold > 0 ? new HashedWheelScheduler(10, TimeUnit.MILLISECONDS, 512, 1) : null;
+        }
+
+        static ConnectionFactory driverManager(String url, String user, String password) {
+            return () -> DriverManager.getConnection(url, user, password);
+        }
+
+        Connection getConnection() throws SQLException {
+            checkOpen();
+            long start = System.nanoTime();
+            PoolEntry entry = borrow(start);
+            borrows.increment();
+            borrowWait.record(System.nanoTime() - start);
+            PooledConnection handler = new PooledConnection(entry);
+            if (leakTimer != null) {
+                Exception borrowedAt = new Exception("Connection " + entry.raw + " borrowed by thread "
+                        + Thread.currentThread().getName() + " has not been returned after "
+                        + TimeUnit.NANOSECONDS.toMillis(leakThresholdNanos) + " ms");
+                handler.leakCheck = leakTimer.schedule(() -> {
+                    leaks.increment();
+                    System.err.println("Possible connection leak:");
+                    borrowedAt.printStackTrace();
+                }, leakThresholdNanos, TimeUnit.NANOSECONDS);
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, handler);
+        }
+
+        // Closes a connection that the caller knows is broken instead of returning it to the pool
+        void evict(Connection connection) {
+            if (Proxy.isProxyClass(connection.getClass())
+                    && Proxy.getInvocationHandler(connection) instanceof PooledConnection) {
+                PooledConnection handler = (PooledConnection) Proxy.getInvocationHandler(connection);
+                handler.broken = true;
+                handler.close();
+            }
+        }
+
+        int getActiveConnections() {
+            return totalConnections.get() - getIdleConnections();
+        }
+
+        int getIdleConnections() {
+            int idle = 0;
+            for (PoolEntry entry : entries) {
+                if (entry.state == NOT_IN_USE) {
+                    idle++;
+                }
+            }
+            return idle;
+        }
+
+        String report() {
+            long total = borrows.sum();
+            return String.format(Locale.ROOT,
+                    "total=%d active=%d idle=%d waiting=%d borrows=%d threadLocalHits=%.1f%% handoffs=%d "
+                    + "created=%d validationFailures=%d evicted=%d timeouts=%d leaks=%d wait %s",
+                    totalConnections.get(), getActiveConnections(), getIdleConnections(), waiters.get(), total,
+                    total == 0 ? 0.0 : threadLocalHits.sum() * 100.0 / total, handoffs.sum(), created.sum(),
+                    validationFailures.sum(), evicted.sum(), timeouts.sum(), leaks.sum(), borrowWait.summary());
+        }
+
+        // Idle connections are closed now, borrowed ones when they are returned.
+        // Threads already waiting in borrow() fail at their next rescan.
+        @Override
+        public void close() {
+            closed = true;
+            for (PoolEntry entry : entries) {
+                if (entry.tryReserve()) {
+                    remove(entry);
+                }
+            }
+            if (leakTimer != null) {
+                leakTimer.shutdownNow();
+            }
+        }
+
+        private PoolEntry borrow(long start) throws SQLException {
+            // Fast path: the connections this thread returned most recently, newest first
+            List<WeakReference<PoolEntry>> recent = recentlyReturned.get();
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                PoolEntry entry = recent.remove(i).get();
+                if (entry != null && entry.tryReserve() && isUsable(entry)) {
+                    threadLocalHits.increment();
+                    return entry;
+                }
+            }
+
+            long deadline = start + connectionTimeoutNanos;
+            waiters.incrementAndGet();
+            try {
+                while (true) {
+                    checkOpen();
+                    for (PoolEntry entry : entries) {
+                        if (entry.tryReserve() && isUsable(entry)) {
+                            return entry;
+                        }
+                    }
+                    PoolEntry fresh = tryCreate();
+                    if (fresh != null) {
+                        return fresh;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.increment();
+                        throw new SQLTimeoutException(String.format(Locale.ROOT,
+                                "No connection available after %d ms (total=%d, active=%d, waiting=%d)",
+                                TimeUnit.NANOSECONDS.toMillis(connectionTimeoutNanos), totalConnections.get(),
+                                getActiveConnections(), waiters.get() - 1));
+                    }
+                    // Wake up now and then to rescan: an evicted connection frees a slot without a handoff
+                    PoolEntry handed = handoff.poll(Math.min(remaining, MAX_HANDOFF_WAIT_NANOS), TimeUnit.NANOSECONDS);
+                    if (handed != null && handed.tryReserve() && isUsable(handed)) {
+                        handoffs.increment();
+                        return handed;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+
+        // Validates a reserved entry that has been idle for a while; evicts it if it is broken
+        private boolean isUsable(PoolEntry entry) {
+            if (System.nanoTime() - entry.lastReturnedNanos <= validateAfterIdleNanos) {
+                return true;
+            }
+            boolean valid;
+            try {
+                valid = entry.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                valid = false;
+            }
+            if (!valid) {
+                validationFailures.increment();
+                remove(entry);
+            }
+            return valid;
+        }
+
+        private void checkOpen() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection pool is closed");
+            }
+        }
+
+        // Opens a new connection if the pool is below maxSize; the entry starts out borrowed
+        private PoolEntry tryCreate() throws SQLException {
+            checkOpen();
+            while (true) {
+                int total = totalConnections.get();
+                if (total >= maxSize) {
+                    return null;
+                }
+                if (totalConnections.compareAndSet(total, total + 1)) {
+                    break;
+                }
+            }
+            PoolEntry entry;
+            try {
+                entry = new PoolEntry(factory.create());
+            } catch (SQLException | RuntimeException e) {
+                totalConnections.decrementAndGet();
+                throw e;
+            }
+            entries.add(entry);
+            created.increment();
+            // close() skips borrowed entries, so one created while it ran is removed here
+            if (closed) {
+                remove(entry);
+                throw new SQLException("Connection pool is closed");
+            }
+            return entry;
+        }
+
+        private void release(PoolEntry entry, boolean broken) {
+            if (broken || closed) {
+                if (broken) {
+                    evicted.increment();
+                }
+                remove(entry);
+                return;
+            }
+            entry.lastReturnedNanos = System.nanoTime();
+            entry.state = NOT_IN_USE;
+            // Hand the connection over while someone is waiting, unless a scanner already took it
+            for (int spins = 0; waiters.get() > 0; spins++) {
+                if (entry.state != NOT_IN_USE || handoff.offer(entry)) {
+                    return;
+                }
+                if ((spins & 0xff) == 0xff) {
+                    LockSupport.parkNanos(10_000);
+                } else {
+                    Thread.yield();
+                }
+            }
+            List<WeakReference<PoolEntry>> recent = recentlyReturned.get();
+            if (recent.size() < THREAD_LOCAL_LIMIT) {
+                recent.add(new WeakReference<>(entry));
+            }
+        }
+
+        private void remove(PoolEntry entry) {
+            if (STATE.getAndSet(entry, REMOVED) == REMOVED) {
+                return;
+            }
+            entries.remove(entry);
+            totalConnections.decrementAndGet();
+            try {
+                entry.raw.close();
+            } catch (SQLException ignored) {
+                // It is being thrown away anyway
+            }
+        }
+
+        private static final AtomicIntegerFieldUpdater<PoolEntry> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(PoolEntry.class, "state");
+
+        private static final class PoolEntry {
+            final Connection raw;
+            volatile int state = IN_USE;
+            volatile long lastReturnedNanos = System.nanoTime();
+
+            PoolEntry(Connection raw) {
+                this.raw = raw;
+            }
+
+            boolean tryReserve() {
+                return STATE.compareAndSet(this, NOT_IN_USE, IN_USE);
+            }
+        }
+
+        // What the caller holds: forwards to the real connection until close(), which
+        // rolls back an unfinished transaction and puts the connection back in the pool
+        private final class PooledConnection implements InvocationHandler {
+            private final PoolEntry entry;
+            private volatile ScheduledFuture<?> leakCheck;
+            private boolean closed;
+            private boolean autoCommitChanged;
+            private volatile boolean broken;
+
+            PooledConnection(PoolEntry entry) {
+                this.entry = entry;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        close();
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "toString":
+                        return "Pooled[" + entry.raw + "]";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("Connection has already been returned to the pool");
+                }
+                if (method.getName().equals("setAutoCommit")) {
+                    autoCommitChanged = true;
+                }
+                try {
+                    Object result = method.invoke(entry.raw, args);
+                    if (result instanceof Statement) {
+                        return statement((Connection) proxy, (Statement) result, method.getReturnType());
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (isConnectionError(cause)) {
+                        broken = true;
+                    }
+                    throw cause;
+                }
+            }
+
+            // Same statement, but getConnection() answers with the pooled proxy
+            private Object statement(Connection pooled, Statement statement, Class<?> type) {
+                return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConnection":
+                            return pooled;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+            }
+
+            synchronized void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                ScheduledFuture<?> check = leakCheck;
+                if (check != null) {
+                    check.cancel(false);
+                }
+                if (autoCommitChanged && !broken) {
+                    try {
+                        if (!entry.raw.getAutoCommit()) {
+                            entry.raw.rollback();
+                            entry.raw.setAutoCommit(true);
+                        }
+                    } catch (SQLException e) {
+                        broken = true;
+                    }
+                }
+                release(entry, broken);
+            }
+        }
+
+        // SQLState class 08 is "connection exception" in both the SQL standard and X/Open
+        static boolean isConnectionError(Throwable error) {
+            if (error instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            return error instanceof SQLException && ((SQLException) error).getSQLState() != null
+                    && ((SQLException) error).getSQLState().startsWith("08");
+        }
+    }
+}
\ No newline at end of file
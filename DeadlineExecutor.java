@@ -0,0 +1,280 @@
+// DeadlineExecutor.java
+// Earliest-deadline-first executor. Every submission carries a deadline; the
+// work queue is a PriorityBlockingQueue ordered by deadline, so urgent tasks
+// overtake bulk work instead of waiting behind it in FIFO order.
+//
+// Tasks that can no longer make it are failed fast with DeadlineMissedException
+// instead of wasting a worker:
+//   - at admission, when the deadline is closer than the expected service time
+//   - at dispatch, when a worker picks the task up too late to finish it
+// Expected service time is an EWMA kept per task class (a lambda or Callable
+// implementation), since one global average would mix fast and slow work.
+// Tasks submitted without a deadline (plain execute/submit) run last.
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class DeadlineExecutor extends ThreadPoolExecutor {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Class<?>, ServiceEstimate> estimates = new ConcurrentHashMap<>();
+    private final LatencyHistogram lateness = new LatencyHistogram();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder shedAtAdmission = new LongAdder();
+    private final LongAdder shedAtDispatch = new LongAdder();
+    private final LongAdder completedOnTime = new LongAdder();
+    private final LongAdder completedLate = new LongAdder();
+
+    public DeadlineExecutor(int threads) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+    }
+
+    // deadline is relative to now; the returned future fails with
+    // DeadlineMissedException if the task is shed
+    public <T> CompletableFuture<T> submit(Callable<T> task, long deadline, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return submit(task, task.getClass(), deadline, unit);
+    }
+
+    public CompletableFuture<Void> execute(Runnable task, long deadline, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return submit(Executors.callable(task, null), task.getClass(), deadline, unit);
+    }
+
+    // taskClass keys the service time estimate: the caller's class, not an adapter's
+    private <T> CompletableFuture<T> submit(Callable<T> task, Class<?> taskClass, long deadline, TimeUnit unit) {
+        long now = System.nanoTime();
+        DeadlineTask<T> deadlineTask = new DeadlineTask<>(task, taskClass, now + unit.toNanos(deadline));
+        submitted.increment();
+        long expected = deadlineTask.estimate.nanos();
+        if (deadlineTask.deadlineNanos - now < expected) {
+            shedAtAdmission.increment();
+            deadlineTask.shed("admission", now);
+            return deadlineTask.future;
+        }
+        super.execute(deadlineTask);
+        return deadlineTask.future;
+    }
+
+    // No deadline: ordered after every task that has one
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof DeadlineTask) {
+            super.execute(command);
+            return;
+        }
+        submitted.increment();
+        super.execute(new DeadlineTask<>(Executors.callable(command, null), command.getClass(), Long.MAX_VALUE));
+    }
+
+    // Queued tasks are returned as usual; their futures are cancelled so callers
+    // waiting on them do not hang
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = super.shutdownNow();
+        for (Runnable task : pending) {
+            if (task instanceof DeadlineTask) {
+                ((DeadlineTask<?>) task).future.cancel(false);
+            }
+        }
+        return pending;
+    }
+
+    public double getMissRate() {
+        long finished = shedAtAdmission.sum() + shedAtDispatch.sum() + completedOnTime.sum() + completedLate.sum();
+        return finished == 0 ? 0.0 : (double) (finished - completedOnTime.sum()) / finished;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT,
+                "submitted=%d onTime=%d late=%d shedAtAdmission=%d shedAtDispatch=%d missRate=%.2f%%%n"
+                + "  lateness of late tasks: %s",
+                submitted.sum(), completedOnTime.sum(), completedLate.sum(), shedAtAdmission.sum(),
+                shedAtDispatch.sum(), getMissRate() * 100, lateness.summary());
+    }
+
+    private ServiceEstimate estimateFor(Class<?> taskClass) {
+        return estimates.computeIfAbsent(taskClass, c -> new ServiceEstimate());
+    }
+
+    public static class DeadlineMissedException extends RuntimeException {
+        private final String stage;
+
+        public DeadlineMissedException(String stage, long overshootNanos) {
+            super("Deadline cannot be met (shed at " + stage + ", expected overshoot "
+                    + LatencyHistogram.format(Math.max(0, overshootNanos)) + ")");
+            this.stage = stage;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+    }
+
+    // EWMA of service time for one task class; starts at zero so the first
+    // tasks are never shed before anything has been measured
+    private static final class ServiceEstimate {
+        private volatile double nanos;
+
+        long nanos() {
+            return (long) nanos;
+        }
+
+        void record(long serviceNanos) {
+            double current = nanos;
+            nanos = current == 0 ? serviceNanos : current + EWMA_ALPHA * (serviceNanos - current);
+        }
+    }
+
+    private final class DeadlineTask<T> implements Runnable, Comparable<DeadlineTask<?>> {
+        private final Callable<T> task;
+        private final long deadlineNanos;
+        private final long seq = sequence.getAndIncrement();
+        private final ServiceEstimate estimate;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        // Long.MAX_VALUE means "no deadline"
+        DeadlineTask(Callable<T> task, Class<?> taskClass, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.estimate = estimateFor(taskClass);
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            boolean hasDeadline = deadlineNanos != Long.MAX_VALUE;
+            long start = System.nanoTime();
+            if (hasDeadline && start + estimate.nanos() > deadlineNanos) {
+                shedAtDispatch.increment();
+                shed("dispatch", start);
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+            long end = System.nanoTime();
+            estimate.record(end - start);
+            if (!hasDeadline || end <= deadlineNanos) {
+                completedOnTime.increment();
+            } else {
+                completedLate.increment();
+                lateness.record(end - deadlineNanos);
+            }
+        }
+
+        void shed(String stage, long now) {
+            future.completeExceptionally(new DeadlineMissedException(stage, now + estimate.nanos() - deadlineNanos));
+        }
+
+        @Override
+        public int compareTo(DeadlineTask<?> other) {
+            if (deadlineNanos != other.deadlineNanos) {
+                if (deadlineNanos == Long.MAX_VALUE || other.deadlineNanos == Long.MAX_VALUE) {
+                    return deadlineNanos == Long.MAX_VALUE ? 1 : -1;
+                }
+                return Long.signum(deadlineNanos - other.deadlineNanos);
+            }
+            return Long.compare(seq, other.seq);
+        }
+    }
+}
+
+// Bulk work (20ms, 500ms deadline) floods two workers while urgent requests (5ms,
+// 60ms deadline) keep arriving. Compares the deadline-miss rate of a FIFO pool
+// with the EDF executor.  Usage: java DeadlineSchedulingBenchmark
+class DeadlineSchedulingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== FIFO fixed pool ===");
+        runFifo();
+        System.out.println("=== Earliest deadline first ===");
+        runEdf();
+    }
+
+    private static void runFifo() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        LongAdder[] misses = {new LongAdder(), new LongAdder()};
+        int[] counts = new int[2];
+        long start = System.nanoTime();
+        for (int i = 0; i < 400; i++) {
+            boolean urgent = i % 4 == 0;
+            long deadline = System.nanoTime() + (urgent ? 60 : 500) * 1_000_000L;
+            int kind = urgent ? 0 : 1;
+            counts[kind]++;
+            pool.submit(() -> {
+                work(urgent ? 5 : 20);
+                if (System.nanoTime() > deadline) {
+                    misses[kind].increment();
+                }
+                return null;
+            });
+            pace(start, i);
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf(Locale.ROOT, "urgent missed %d/%d, bulk missed %d/%d%n",
+                misses[0].sum(), counts[0], misses[1].sum(), counts[1]);
+    }
+
+    private static void runEdf() throws Exception {
+        DeadlineExecutor executor = new DeadlineExecutor(2);
+        LongAdder[] misses = {new LongAdder(), new LongAdder()};
+        LongAdder[] shed = {new LongAdder(), new LongAdder()};
+        int[] counts = new int[2];
+        long start = System.nanoTime();
+        for (int i = 0; i < 400; i++) {
+            boolean urgent = i % 4 == 0;
+            long deadline = System.nanoTime() + (urgent ? 60 : 500) * 1_000_000L;
+            int kind = urgent ? 0 : 1;
+            counts[kind]++;
+            CompletableFuture<Integer> future = urgent
+                    ? executor.submit(() -> work(5), 60, TimeUnit.MILLISECONDS)
+                    : executor.submit(() -> work(20), 500, TimeUnit.MILLISECONDS);
+            // Same rule as the FIFO run: shed or finished after the deadline is a miss
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    shed[kind].increment();
+                }
+                if (error != null || System.nanoTime() > deadline) {
+                    misses[kind].increment();
+                }
+            });
+            pace(start, i);
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf(Locale.ROOT, "urgent missed %d/%d (shed %d), bulk missed %d/%d (shed %d)%n",
+                misses[0].sum(), counts[0], shed[0].sum(), misses[1].sum(), counts[1], shed[1].sum());
+        System.out.println(executor.report());
+    }
+
+    // ~140 tasks/s of mostly 20ms work is more than two workers can keep up with
+    private static void pace(long start, int i) throws InterruptedException {
+        long due = start + i * 7_000_000L;
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private static int work(int millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return millis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,291 @@
+// EmployeeCsvImporter.java
+// Bulk loader for the employees table used by JdbcInsertDemo. Streams a CSV file
+// (name,email,age,department) through a BufferedReader, so memory use does not
+// depend on the file size, and writes it with batched PreparedStatements:
+//   - autocommit off, one commit per chunk of rows
+//   - multi-row INSERT ... VALUES (?,?,?,?),(?,?,?,?),... for drivers that
+//     accept it (MySQL, MariaDB, PostgreSQL, H2), a plain JDBC batch otherwise
+//   - progress reported as rows loaded and rows per second
+// For MySQL, adding rewriteBatchedStatements=true to the URL helps the
+// single-row fallback path as well.
+//
+// Usage: java EmployeeCsvImporter <jdbcUrl> <user> <password> <file.csv> [chunkSize]
+//        java EmployeeCsvImporter --generate <rows> <file.csv>
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+public class EmployeeCsvImporter {
+
+    private static final String INSERT_PREFIX = "INSERT INTO employees (name, email, age, department) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?)";
+    private static final int COLUMNS = 4;
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long rowsCommitted, double rowsPerSecond);
+    }
+
+    public static final class ImportResult {
+        public final long rows;
+        public final long skippedLines;
+        public final double seconds;
+
+        ImportResult(long rows, long skippedLines, double seconds) {
+            this.rows = rows;
+            this.skippedLines = skippedLines;
+            this.seconds = seconds;
+        }
+
+        public double rowsPerSecond() {
+            return seconds == 0 ? rows : rows / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d rows in %.2fs (%.0f rows/s), %d lines skipped",
+                    rows, seconds, rowsPerSecond(), skippedLines);
+        }
+    }
+
+    private final Connection connection;
+    private final int chunkSize;
+    private final int rowsPerStatement;
+    private ProgressListener progressListener = (rows, rate) -> { };
+
+    // rowsPerStatement is used only when the driver supports multi-row VALUES;
+    // chunkSize is rounded up to a multiple of it so every commit is whole statements
+    public EmployeeCsvImporter(Connection connection, int chunkSize, int rowsPerStatement) throws SQLException {
+        if (chunkSize < 1 || rowsPerStatement < 1) {
+            throw new IllegalArgumentException("chunkSize and rowsPerStatement must be positive");
+        }
+        this.connection = connection;
+        this.rowsPerStatement = supportsMultiRowValues(connection) ? rowsPerStatement : 1;
+        this.chunkSize = (chunkSize + this.rowsPerStatement - 1) / this.rowsPerStatement * this.rowsPerStatement;
+    }
+
+    public EmployeeCsvImporter(Connection connection) throws SQLException {
+        this(connection, 10_000, 100);
+    }
+
+    public EmployeeCsvImporter onProgress(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    public int getRowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    public ImportResult importCsv(Path file) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importCsv(reader);
+        }
+    }
+
+    public ImportResult importCsv(Reader source) throws IOException, SQLException {
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute(JdbcInsertDemo.CREATE_EMPLOYEES_TABLE_SQL);
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long start = System.nanoTime();
+        long committed = 0;
+        long skipped = 0;
+        long lineNumber = 0;
+        List<String[]> tail = new ArrayList<>(rowsPerStatement);
+
+        try (PreparedStatement multi = connection.prepareStatement(insertSql(rowsPerStatement))) {
+            int rowsInStatement = 0;
+            long rowsInChunk = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String[] row = parseRow(line);
+                if (row == null) {
+                    skipped++; // blank, header or malformed line
+                    continue;
+                }
+                bind(multi, rowsInStatement, row);
+                tail.add(row);
+                if (++rowsInStatement == rowsPerStatement) {
+                    multi.addBatch();
+                    rowsInStatement = 0;
+                    tail.clear();
+                    rowsInChunk += rowsPerStatement;
+                    if (rowsInChunk == chunkSize) {
+                        multi.executeBatch();
+                        connection.commit();
+                        committed += rowsInChunk;
+                        rowsInChunk = 0;
+                        progressListener.onProgress(committed, committed / ((System.nanoTime() - start) / 1e9));
+                    }
+                }
+            }
+            if (rowsInChunk > 0) {
+                multi.executeBatch();
+            }
+            // Rows that did not fill a whole multi-row statement
+            if (!tail.isEmpty()) {
+                try (PreparedStatement single = connection.prepareStatement(insertSql(1))) {
+                    for (String[] row : tail) {
+                        bind(single, 0, row);
+                        single.addBatch();
+                    }
+                    single.executeBatch();
+                }
+            }
+            connection.commit();
+            committed += rowsInChunk + tail.size();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw new SQLException("Import stopped near line " + lineNumber + " after " + committed
+                    + " committed rows: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        progressListener.onProgress(committed, committed / Math.max(seconds, 1e-9));
+        return new ImportResult(committed, skipped, seconds);
+    }
+
+    static boolean supportsMultiRowValues(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        return product.contains("mysql") || product.contains("mariadb")
+                || product.contains("postgresql") || product.equals("h2");
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDERS.length() + 2));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDERS);
+        }
+        return sql.toString();
+    }
+
+    private static void bind(PreparedStatement statement, int rowInStatement, String[] row) throws SQLException {
+        int base = rowInStatement * COLUMNS;
+        statement.setString(base + 1, row[0]);
+        statement.setString(base + 2, row[1]);
+        if (row[2].isEmpty()) {
+            statement.setNull(base + 3, Types.INTEGER);
+        } else {
+            statement.setInt(base + 3, Integer.parseInt(row[2]));
+        }
+        statement.setString(base + 4, row[3].isEmpty() ? null : row[3]);
+    }
+
+    // name,email,age,department with optional "quoted, fields" ("" inside quotes is a quote).
+    // Returns null for lines that are blank, the header, do not have four fields or
+    // have an age that is not a whole number within int range.
+    static String[] parseRow(String line) {
+        if (line.isBlank() || line.regionMatches(true, 0, "name,", 0, 5)) {
+            return null;
+        }
+        String[] fields = new String[COLUMNS];
+        int field = 0;
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                if (field == COLUMNS - 1) {
+                    return null;
+                }
+                fields[field++] = current.toString().trim();
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (field != COLUMNS - 1) {
+            return null;
+        }
+        fields[field] = current.toString().trim();
+        if (fields[0].isEmpty() || fields[1].isEmpty() || !isAge(fields[2])) {
+            return null;
+        }
+        return fields;
+    }
+
+    // Empty means unknown; otherwise it has to bind as an INTEGER later
+    private static boolean isAge(String field) {
+        if (field.isEmpty()) {
+            return true;
+        }
+        if (!field.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        try {
+            Integer.parseInt(field);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("--generate")) {
+            generate(Integer.parseInt(args[1]), Paths.get(args[2]));
+            return;
+        }
+        if (args.length < 4) {
+            System.out.println("Usage: java EmployeeCsvImporter <jdbcUrl> <user> <password> <file.csv> [chunkSize]");
+            System.out.println("       java EmployeeCsvImporter --generate <rows> <file.csv>");
+            return;
+        }
+        int chunkSize = args.length > 4 ? Integer.parseInt(args[4]) : 10_000;
+        try (Connection connection = DriverManager.getConnection(args[0], args[1], args[2])) {
+            EmployeeCsvImporter importer = new EmployeeCsvImporter(connection, chunkSize, 100)
+                    .onProgress((rows, rate) -> System.out.printf(Locale.ROOT, "  %,d rows committed (%,.0f rows/s)%n",
+                            rows, rate));
+            System.out.println("Importing " + args[3] + " with " + importer.getRowsPerStatement()
+                    + " row(s) per INSERT");
+            System.out.println("Done: " + importer.importCsv(Paths.get(args[3])));
+        }
+    }
+
+    private static void generate(int rows, Path file) throws IOException {
+        String[] departments = {"Engineering", "Marketing", "Sales", "HR", "Finance"};
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("name,email,age,department");
+            writer.newLine();
+            for (int i = 1; i <= rows; i++) {
+                writer.write("\"Employee " + i + "\",employee" + i + "@example.com," + (20 + random.nextInt(45))
+                        + "," + departments[random.nextInt(departments.length)]);
+                writer.newLine();
+            }
+        }
+        System.out.println("Wrote " + rows + " rows to " + file);
+    }
+}
\ No newline at end of file
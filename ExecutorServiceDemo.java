@@ -6,6 +6,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class ExecutorServiceDemo {
     
@@ -40,6 +43,9 @@ public class ExecutorServiceDemo {
             // Demo 8: Custom ThreadPoolExecutor
             demoCustomThreadPool();
             
+            // Demo 9: Virtual threads
+            demoVirtualThreads();
+            
         } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
         }
@@ -223,7 +229,15 @@ public class ExecutorServiceDemo {
         System.out.println("\nUsing invokeAny():");
         Integer firstResult = executor.invokeAny(tasks);
         System.out.println("First completed task result: " + firstResult);
-        
+
+        // Hedged invokeAny - backup only starts if the primary is slower than usual
+        System.out.println("\nUsing HedgedExecutor:");
+        HedgedExecutor hedged = new HedgedExecutor(executor, 0.95, 1, 700, TimeUnit.MILLISECONDS, 2);
+        for (int i = 1; i <= 3; i++) {
+            System.out.println("Hedged result: " + hedged.invoke(new CalculationTask(i * 3)));
+        }
+        System.out.println(hedged.report());
+
         executor.shutdown();
         System.out.println("InvokeAll and InvokeAny demo completed\n");
     }
@@ -250,7 +264,21 @@ public class ExecutorServiceDemo {
                 System.out.println("Completed task failed: " + e.getCause().getMessage());
             }
         }
-        
+
+        // Streaming variant: tasks are created lazily and at most 3 are in flight
+        System.out.println("\nStreaming 9 tasks through a BoundedCompletionService:");
+        BoundedCompletionService<Integer> boundedService = new BoundedCompletionService<>(executor, 3);
+        Stream<Callable<Integer>> lazyTasks = IntStream.rangeClosed(1, 9).mapToObj(CalculationTask::new);
+        boundedService.forEachCompleted(lazyTasks, future -> {
+            try {
+                System.out.println("Streamed task result: " + future.get());
+            } catch (ExecutionException e) {
+                System.out.println("Streamed task failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
         executor.shutdown();
         System.out.println("CompletionService demo completed\n");
     }
@@ -264,7 +292,8 @@ public class ExecutorServiceDemo {
         long keepAliveTime = 10L;
         BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(10);
         
-        ThreadPoolExecutor customExecutor = new ThreadPoolExecutor(
+        // Records queue-wait and service-time histograms plus rejection counts
+        InstrumentedThreadPoolExecutor customExecutor = new InstrumentedThreadPoolExecutor(
             corePoolSize,
             maxPoolSize,
             keepAliveTime,
@@ -276,10 +305,12 @@ public class ExecutorServiceDemo {
         // Monitor thread pool statistics
         ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor();
         monitor.scheduleAtFixedRate(() -> {
-            System.out.printf("Pool stats: Active=%d, Queue=%d, Completed=%d%n",
+            System.out.printf("Pool stats: Active=%d, Queue=%d, Completed=%d, QueueWait p99=%s, Service p99=%s%n",
                 customExecutor.getActiveCount(),
                 customExecutor.getQueue().size(),
-                customExecutor.getCompletedTaskCount());
+                customExecutor.getCompletedTaskCount(),
+                LatencyHistogram.format(customExecutor.queueWaitSnapshot().percentileNanos(0.99)),
+                LatencyHistogram.format(customExecutor.serviceTimeSnapshot().percentileNanos(0.99)));
         }, 0, 500, TimeUnit.MILLISECONDS);
         
         for (int i = 0; i < 15; i++) {
@@ -299,8 +330,59 @@ public class ExecutorServiceDemo {
         customExecutor.shutdown();
         customExecutor.awaitTermination(15, TimeUnit.SECONDS);
         monitor.shutdown();
+        System.out.println("Final " + customExecutor.report());
         System.out.println("Custom ThreadPoolExecutor demo completed\n");
     }
+    
+    // Demo 9: Virtual threads (Java 21+)
+    private static void demoVirtualThreads() throws InterruptedException, ExecutionException {
+        System.out.println("=== Demo 9: Virtual Threads ===");
+        
+        if (!VirtualThreadExecutors.isSupported()) {
+            System.out.println("Virtual threads need Java 21+, running on " + System.getProperty("java.version")
+                             + "; see ExecutorComparisonSuite for the platform-thread numbers");
+            System.out.println("Virtual threads demo skipped\n");
+            return;
+        }
+        
+        // One virtual thread per task: sleeping tasks cost almost nothing while blocked
+        try (VirtualThreadExecutors.PinningMonitor pinning =
+                     VirtualThreadExecutors.startPinningMonitor(java.time.Duration.ofMillis(20))) {
+            ExecutorService executor = VirtualThreadExecutors.newVirtualThreadPerTaskExecutor();
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                executor.execute(new SimpleTask(taskCounter.getAndIncrement()));
+                futures.add(executor.submit(new CalculationTask(i + 1)));
+            }
+            for (Future<Integer> future : futures) {
+                try {
+                    System.out.println("Virtual thread result: " + future.get());
+                } catch (ExecutionException e) {
+                    System.out.println("Virtual thread task failed: " + e.getCause().getMessage());
+                }
+            }
+            
+            // Sleeping while holding a monitor pins the carrier thread
+            Object lock = new Object();
+            for (int i = 0; i < 3; i++) {
+                executor.execute(() -> {
+                    synchronized (lock) {
+                        try {
+                            Thread.sleep(100);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            
+            executor.shutdown();
+            executor.awaitTermination(15, TimeUnit.SECONDS);
+            Thread.sleep(1_000); // JFR delivers events about once a second
+            System.out.println("Pinning: " + pinning.report());
+        }
+        System.out.println("Virtual threads demo completed\n");
+    }
 }
 
 // Additional examples for complex scenarios
@@ -348,6 +430,66 @@ class AdvancedExecutorServiceExamples {
         .thenAccept(result -> System.out.println("Final result: " + result))
         .thenRun(() -> System.out.println("All operations completed"));
     }
+    
+    // Example of fan-out/fan-in without shared mutable state in the workers
+    public static void demoFanOutFanIn() throws InterruptedException {
+        System.out.println("=== Advanced: Fan-out/Fan-in Aggregation ===");
+        
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // Partial sums are combined in a LongAdder
+            long sumOfSquares = FanOutAggregator.sum(executor, 1_000_000, 8, i -> (long) i * i);
+            System.out.println("Sum of squares below 1,000,000: " + sumOfSquares);
+            
+            // Per-worker slots {count, min, max} merged at the end
+            long[] stats = FanOutAggregator.aggregate(executor, 1_000_000, 8,
+                () -> new long[]{0, Long.MAX_VALUE, Long.MIN_VALUE},
+                (slot, from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        long value = (long) i * i % 1_000_003;
+                        slot[0]++;
+                        slot[1] = Math.min(slot[1], value);
+                        slot[2] = Math.max(slot[2], value);
+                    }
+                },
+                slots -> {
+                    long[] merged = {0, Long.MAX_VALUE, Long.MIN_VALUE};
+                    for (long[] slot : slots) {
+                        merged[0] += slot[0];
+                        merged[1] = Math.min(merged[1], slot[1]);
+                        merged[2] = Math.max(merged[2], slot[2]);
+                    }
+                    return merged;
+                });
+            System.out.println("count=" + stats[0] + " min=" + stats[1] + " max=" + stats[2]);
+        } catch (ExecutionException e) {
+            System.out.println("Aggregation failed: " + e.getCause().getMessage());
+        }
+        
+        // The first failure cancels the remaining partitions
+        LongAdder processed = new LongAdder();
+        try {
+            FanOutAggregator.sum(executor, 800, 8, i -> {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("cancelled at " + i);
+                }
+                if (i == 250) {
+                    throw new RuntimeException("Bad number: " + i);
+                }
+                processed.increment();
+                return i;
+            });
+        } catch (ExecutionException e) {
+            System.out.println("Fan-out failed: " + e.getCause().getMessage()
+                             + ", items processed before cancellation: " + processed.sum() + "/800");
+        }
+        
+        executor.shutdown();
+        System.out.println("Fan-out/Fan-in demo completed\n");
+    }
 }
 
 // Main class to run all demos
@@ -355,6 +497,7 @@ class RunAllDemos {
     public static void main(String[] args) throws Exception {
         ExecutorServiceDemo.main(args);
         AdvancedExecutorServiceExamples.demoCountDownLatch();
+        AdvancedExecutorServiceExamples.demoFanOutFanIn();
         AdvancedExecutorServiceExamples.demoCompletableFuture();
     }
 }
\ No newline at end of file
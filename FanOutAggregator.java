@@ -0,0 +1,89 @@
+// FanOutAggregator.java
+// Parallel fan-out/fan-in over an index range [0, size) on a supplied executor.
+// The range is split into partitions; each partition gets its own slot
+// (a per-worker accumulator nobody else touches) and the slots are merged once
+// every partition is done, so the hot loop never shares mutable state.
+// sum() is the simple case and combines partial sums in a LongAdder.
+//
+// The first partition to fail cancels all the others (with interruption) and
+// its exception is rethrown; long CPU loops should check
+// Thread.currentThread().isInterrupted() if they want to stop early.
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+
+public final class FanOutAggregator {
+
+    @FunctionalInterface
+    public interface RangeTask<S> {
+        void run(S slot, int from, int to) throws Exception;
+    }
+
+    private FanOutAggregator() {
+    }
+
+    // Runs task over every partition and merges the per-partition slots in index order
+    public static <S, R> R aggregate(ExecutorService executor, int size, int partitions, Supplier<S> slotFactory,
+                                     RangeTask<S> task, Function<List<S>, R> merger)
+            throws InterruptedException, ExecutionException {
+        return merger.apply(forEachPartition(executor, size, partitions, slotFactory, task));
+    }
+
+    // Sum of element(i) for i in [0, size)
+    public static long sum(ExecutorService executor, int size, int partitions, IntToLongFunction element)
+            throws InterruptedException, ExecutionException {
+        LongAdder total = new LongAdder();
+        forEachPartition(executor, size, partitions, () -> total, (adder, from, to) -> {
+            long partial = 0;
+            for (int i = from; i < to; i++) {
+                partial += element.applyAsLong(i);
+            }
+            adder.add(partial);
+        });
+        return total.sum();
+    }
+
+    public static <S> List<S> forEachPartition(ExecutorService executor, int size, int partitions,
+                                               Supplier<S> slotFactory, RangeTask<S> task)
+            throws InterruptedException, ExecutionException {
+        if (size <= 0) {
+            return new ArrayList<>();
+        }
+        int parts = Math.max(1, Math.min(partitions, size));
+        int chunk = (size + parts - 1) / parts;
+        CompletionService<S> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<S>> futures = new ArrayList<>(parts);
+
+        try {
+            for (int from = 0; from < size; from += chunk) {
+                int start = from;
+                int end = Math.min(size, from + chunk);
+                futures.add(completionService.submit(() -> {
+                    S slot = slotFactory.get();
+                    task.run(slot, start, end);
+                    return slot;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                // Propagates the first failure in completion order, not submission order
+                completionService.take().get();
+            }
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            for (Future<S> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+
+        List<S> slots = new ArrayList<>(futures.size());
+        for (Future<S> future : futures) {
+            slots.add(future.get());
+        }
+        return slots;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,444 @@
+// HashedWheelScheduler.java
+// ScheduledExecutorService backed by a hashed timing wheel instead of the
+// binary heap used by ScheduledThreadPoolExecutor.
+//   - schedule():  O(1), the timer is appended to a lock-free hand-off queue
+//   - cancel():    O(1), the timer is unlinked from its bucket on the next tick
+//   - expiry:      one worker thread advances the wheel every tick and hands
+//                  expired timers to a dispatch pool
+// Timers fire with tick resolution (they may be up to one tick late), which is
+// the right trade-off for millions of timeouts that are mostly cancelled.
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HashedWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+    private static final int RUNNING = 0, SHUTDOWN = 1, STOPPED = 2;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final ExecutorService dispatcher;
+    private final boolean ownsDispatcher;
+    private final Thread worker;
+    private final Queue<WheelTimer<?>> pendingAdds = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimer<?>> pendingCancels = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private final AtomicLong pendingTimers = new AtomicLong();
+    private final CountDownLatch workerDone = new CountDownLatch(1);
+    private final List<Runnable> unprocessed = new ArrayList<>();
+    private long tick;
+
+    public HashedWheelScheduler() {
+        this(1, TimeUnit.MILLISECONDS, 4096, Runtime.getRuntime().availableProcessors());
+    }
+
+    public HashedWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize, int dispatchThreads) {
+        this(tickDuration, unit, wheelSize, Executors.newFixedThreadPool(dispatchThreads, daemonFactory("wheel-dispatch")), true);
+    }
+
+    public HashedWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize, ExecutorService dispatcher) {
+        this(tickDuration, unit, wheelSize, dispatcher, false);
+    }
+
+    private HashedWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize, ExecutorService dispatcher,
+                                 boolean ownsDispatcher) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickDuration and wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Bucket[Math.max(1, size)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.dispatcher = dispatcher;
+        this.ownsDispatcher = ownsDispatcher;
+        this.worker = daemonFactory("wheel-timer").newThread(this::runWheel);
+        worker.start();
+    }
+
+    // ---------------------------------------------------------------- ScheduledExecutorService
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return enqueue(new WheelTimer<Void>(Executors.callable(command, null), triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return enqueue(new WheelTimer<>(callable, triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return enqueue(new WheelTimer<Void>(Executors.callable(command, null), triggerTime(initialDelay, unit),
+                                            unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be positive");
+        }
+        return enqueue(new WheelTimer<Void>(Executors.callable(command, null), triggerTime(initialDelay, unit),
+                                            -unit.toNanos(delay)));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public long pendingTimers() {
+        return pendingTimers.get();
+    }
+
+    @Override
+    public void shutdown() {
+        // Like ScheduledThreadPoolExecutor: delayed one-shot tasks still run,
+        // periodic tasks stop being rescheduled
+        state.compareAndSet(RUNNING, SHUTDOWN);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        state.set(STOPPED);
+        worker.interrupt();
+        try {
+            workerDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> tasks;
+        synchronized (unprocessed) {
+            tasks = new ArrayList<>(unprocessed);
+        }
+        if (ownsDispatcher) {
+            tasks.addAll(dispatcher.shutdownNow());
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state.get() != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return workerDone.getCount() == 0 && (!ownsDispatcher || dispatcher.isTerminated());
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!workerDone.await(timeout, unit)) {
+            return false;
+        }
+        return !ownsDispatcher || dispatcher.awaitTermination(Math.max(0, deadline - System.nanoTime()),
+                                                              TimeUnit.NANOSECONDS);
+    }
+
+    // ---------------------------------------------------------------- internals
+
+    private long now() {
+        return System.nanoTime() - startNanos;
+    }
+
+    private long triggerTime(long delay, TimeUnit unit) {
+        return plusSaturated(now(), Math.max(0, unit.toNanos(delay)));
+    }
+
+    // Huge delays (Long.MAX_VALUE, DAYS) clamp to "never" instead of wrapping negative
+    private static long plusSaturated(long time, long nanos) {
+        return nanos > Long.MAX_VALUE - time ? Long.MAX_VALUE : time + nanos;
+    }
+
+    private <V> WheelTimer<V> enqueue(WheelTimer<V> timer) {
+        if (isShutdown()) {
+            throw new RejectedExecutionException("Scheduler has been shut down");
+        }
+        pendingTimers.incrementAndGet();
+        pendingAdds.add(timer);
+        return timer;
+    }
+
+    private void runWheel() {
+        try {
+            while (state.get() != STOPPED) {
+                long deadline = (tick + 1) * tickNanos;
+                long sleep = deadline - now();
+                if (sleep > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleep);
+                    } catch (InterruptedException e) {
+                        if (state.get() == STOPPED) {
+                            break;
+                        }
+                    }
+                    continue;
+                }
+                processCancellations();
+                transferPendingAdds();
+                expire(wheel[(int) (tick & mask)], deadline);
+                tick++;
+                if (state.get() == SHUTDOWN && pendingTimers.get() == 0) {
+                    break;
+                }
+            }
+            if (state.get() == STOPPED) {
+                collectUnprocessed();
+            }
+        } finally {
+            workerDone.countDown();
+            if (ownsDispatcher) {
+                dispatcher.shutdown();
+            }
+        }
+    }
+
+    private void processCancellations() {
+        WheelTimer<?> timer;
+        while ((timer = pendingCancels.poll()) != null) {
+            if (timer.bucket != null) {
+                timer.bucket.remove(timer);
+                pendingTimers.decrementAndGet();
+            }
+        }
+    }
+
+    private void transferPendingAdds() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            WheelTimer<?> timer = pendingAdds.poll();
+            if (timer == null) {
+                return;
+            }
+            if (timer.isCancelled()) {
+                pendingTimers.decrementAndGet();
+                continue;
+            }
+            long expiryTick = timer.deadline / tickNanos;
+            timer.remainingRounds = (expiryTick - tick) / wheel.length;
+            // Already overdue: put it in the current slot so it fires this tick
+            long slotTick = Math.max(expiryTick, tick);
+            wheel[(int) (slotTick & mask)].add(timer);
+        }
+    }
+
+    private void expire(Bucket bucket, long tickDeadline) {
+        WheelTimer<?> timer = bucket.head;
+        while (timer != null) {
+            WheelTimer<?> next = timer.next;
+            if (timer.remainingRounds <= 0 && timer.deadline <= tickDeadline) {
+                bucket.remove(timer);
+                pendingTimers.decrementAndGet();
+                dispatch(timer);
+            } else if (timer.isCancelled()) {
+                bucket.remove(timer);
+                pendingTimers.decrementAndGet();
+            } else {
+                timer.remainingRounds--;
+            }
+            timer = next;
+        }
+    }
+
+    private void dispatch(WheelTimer<?> timer) {
+        try {
+            dispatcher.execute(timer);
+        } catch (RejectedExecutionException e) {
+            timer.cancel(false);
+        }
+    }
+
+    private void reschedule(WheelTimer<?> timer) {
+        if (state.get() == RUNNING) {
+            pendingTimers.incrementAndGet();
+            pendingAdds.add(timer);
+        } else {
+            timer.cancel(false);
+        }
+    }
+
+    private void collectUnprocessed() {
+        synchronized (unprocessed) {
+            for (Bucket bucket : wheel) {
+                for (WheelTimer<?> timer = bucket.head; timer != null; timer = timer.next) {
+                    if (!timer.isCancelled()) {
+                        unprocessed.add(timer);
+                    }
+                }
+            }
+            for (WheelTimer<?> timer : pendingAdds) {
+                if (!timer.isCancelled()) {
+                    unprocessed.add(timer);
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger(1);
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Only touched by the wheel thread
+    private static final class Bucket {
+        WheelTimer<?> head;
+        WheelTimer<?> tail;
+
+        void add(WheelTimer<?> timer) {
+            timer.bucket = this;
+            timer.prev = tail;
+            timer.next = null;
+            if (tail == null) {
+                head = timer;
+            } else {
+                tail.next = timer;
+            }
+            tail = timer;
+        }
+
+        void remove(WheelTimer<?> timer) {
+            if (timer.prev != null) {
+                timer.prev.next = timer.next;
+            } else {
+                head = timer.next;
+            }
+            if (timer.next != null) {
+                timer.next.prev = timer.prev;
+            } else {
+                tail = timer.prev;
+            }
+            timer.prev = null;
+            timer.next = null;
+            timer.bucket = null;
+        }
+    }
+
+    private final class WheelTimer<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+        // > 0 fixed rate, < 0 fixed delay, 0 one-shot
+        private final long period;
+        volatile long deadline;
+        long remainingRounds;
+        Bucket bucket;
+        WheelTimer<?> prev;
+        WheelTimer<?> next;
+
+        WheelTimer(Callable<V> callable, long deadline, long period) {
+            super(callable);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - now(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                pendingCancels.add(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (super.runAndReset()) {
+                deadline = period > 0 ? plusSaturated(deadline, period) : plusSaturated(now(), -period);
+                reschedule(this);
+            }
+        }
+    }
+}
+
+// Schedules N timers, cancels 90% of them (the typical timeout pattern), then
+// waits for the rest to fire and reports how late they were. Compares the wheel
+// with ScheduledThreadPoolExecutor with and without removeOnCancelPolicy.
+// Usage: java TimingWheelBenchmark [timers]
+class TimingWheelBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("=== " + timers + " timers (2-4s delay), 90% cancelled ===");
+
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "-- warm-up --" : "-- measured --");
+            run("HashedWheelScheduler(1ms x 4096)", new HashedWheelScheduler(), timers);
+            ScheduledThreadPoolExecutor heap = new ScheduledThreadPoolExecutor(1);
+            heap.setRemoveOnCancelPolicy(true);
+            run("STPE removeOnCancel=true", heap, timers);
+            run("STPE removeOnCancel=false", new ScheduledThreadPoolExecutor(1), timers);
+        }
+    }
+
+    private static void run(String label, ScheduledExecutorService scheduler, int timers) throws Exception {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        LatencyHistogram lateness = new LatencyHistogram();
+        Random random = new Random(1);
+        List<ScheduledFuture<?>> futures = new ArrayList<>(timers);
+        CountDownLatch fired = new CountDownLatch(timers - timers * 9 / 10);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            long delayNanos = TimeUnit.SECONDS.toNanos(2) + (long) (random.nextDouble() * TimeUnit.SECONDS.toNanos(2));
+            long due = System.nanoTime() + delayNanos;
+            futures.add(scheduler.schedule(() -> {
+                lateness.record(System.nanoTime() - due);
+                fired.countDown();
+            }, delayNanos, TimeUnit.NANOSECONDS));
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        long heapScheduled = runtime.totalMemory() - runtime.freeMemory();
+
+        start = System.nanoTime();
+        for (int i = 0; i < timers * 9 / 10; i++) {
+            futures.get(i).cancel(false);
+        }
+        long cancelNanos = System.nanoTime() - start;
+        futures.clear();
+
+        fired.await(30, TimeUnit.SECONDS);
+        System.out.printf(Locale.ROOT, "%-34s schedule %5.0f ns/op  cancel %5.0f ns/op  heap +%4d MB  "
+                        + "lateness p50=%s p99=%s%n",
+                label, (double) scheduleNanos / timers, (double) cancelNanos / (timers * 9 / 10),
+                (heapScheduled - heapBefore) / (1024 * 1024),
+                LatencyHistogram.format(lateness.percentileNanos(0.5)),
+                LatencyHistogram.format(lateness.percentileNanos(0.99)));
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+// HedgedExecutor.java
+// Hedged requests for Callable-style calls: start the primary attempt, and only
+// if it has not finished within the observed p95 latency (by default) start a
+// backup. The first successful attempt wins and every other attempt is
+// cancelled right away. A global budget caps how many hedges may be in flight,
+// so a slow backend cannot turn into double load.
+//
+// Compared to ExecutorService.invokeAny(), which starts all tasks at once,
+// this costs roughly (1 - percentile) extra work while cutting the tail.
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HedgedExecutor {
+    private static final int WARMUP_SAMPLES = 20;
+
+    private final ExecutorService executor;
+    private final double hedgePercentile;
+    private final long minHedgeDelayNanos;
+    private final long initialHedgeDelayNanos;
+    private final Semaphore hedgeBudget;
+    private final LatencyHistogram.Rolling attemptLatency = new LatencyHistogram.Rolling(1, TimeUnit.MINUTES, 6);
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedgesLaunched = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+    private final LongAdder hedgesSkipped = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+
+    public HedgedExecutor(ExecutorService executor) {
+        this(executor, 0.95, 1, 100, TimeUnit.MILLISECONDS, 16);
+    }
+
+    public HedgedExecutor(ExecutorService executor, double hedgePercentile, long minHedgeDelay,
+                          long initialHedgeDelay, TimeUnit unit, int maxInFlightHedges) {
+        if (hedgePercentile <= 0 || hedgePercentile >= 1) {
+            throw new IllegalArgumentException("hedgePercentile must be between 0 and 1");
+        }
+        this.executor = executor;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayNanos = unit.toNanos(minHedgeDelay);
+        this.initialHedgeDelayNanos = unit.toNanos(initialHedgeDelay);
+        this.hedgeBudget = new Semaphore(maxInFlightHedges);
+    }
+
+    // Hedges an idempotent task with a second copy of itself
+    public <T> T invoke(Callable<T> task) throws InterruptedException, ExecutionException {
+        return invokeAny(Collections.nCopies(2, task));
+    }
+
+    // replicas[0] is the primary; the others are started one at a time, each
+    // after another hedge delay, or immediately when every running attempt failed
+    public <T> T invokeAny(List<? extends Callable<T>> replicas) throws InterruptedException, ExecutionException {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("No tasks");
+        }
+        calls.increment();
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<T>> attempts = new ArrayList<>(replicas.size());
+        int heldPermits = 0;
+        boolean hedgingStopped = false;
+        int outstanding = 0;
+        int next = 0;
+        ExecutionException lastFailure = null;
+
+        try {
+            attempts.add(submit(completionService, replicas.get(next++)));
+            outstanding++;
+            long hedgeDelay = currentHedgeDelayNanos();
+
+            while (outstanding > 0) {
+                Future<T> done;
+                if (next < replicas.size() && !hedgingStopped) {
+                    done = completionService.poll(hedgeDelay, TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        if (hedgeBudget.tryAcquire()) {
+                            heldPermits++;
+                            hedgesLaunched.increment();
+                            attempts.add(submit(completionService, replicas.get(next++)));
+                            outstanding++;
+                        } else {
+                            hedgesSkipped.increment();
+                            hedgingStopped = true; // budget exhausted: wait for what is already running
+                        }
+                        continue;
+                    }
+                } else {
+                    done = completionService.take();
+                }
+                outstanding--;
+
+                try {
+                    T result = done.get();
+                    if (done != attempts.get(0)) {
+                        hedgesWon.increment();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    lastFailure = e;
+                    if (outstanding == 0 && next < replicas.size()) {
+                        // Nothing left running: fail over without waiting for the delay
+                        failovers.increment();
+                        attempts.add(submit(completionService, replicas.get(next++)));
+                        outstanding++;
+                    }
+                }
+            }
+            throw lastFailure;
+        } finally {
+            for (Future<T> attempt : attempts) {
+                attempt.cancel(true);
+            }
+            if (heldPermits > 0) {
+                hedgeBudget.release(heldPermits);
+            }
+        }
+    }
+
+    public long currentHedgeDelayNanos() {
+        LatencyHistogram snapshot = attemptLatency.snapshot();
+        if (snapshot.count() < WARMUP_SAMPLES) {
+            return initialHedgeDelayNanos;
+        }
+        return Math.max(minHedgeDelayNanos, snapshot.percentileNanos(hedgePercentile));
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT,
+                "calls=%d hedges=%d (%.1f%%) hedgesWon=%d skippedByBudget=%d failovers=%d hedgeDelay=%s",
+                calls.sum(), hedgesLaunched.sum(), 100.0 * hedgesLaunched.sum() / Math.max(1, calls.sum()),
+                hedgesWon.sum(), hedgesSkipped.sum(), failovers.sum(),
+                LatencyHistogram.format(currentHedgeDelayNanos()));
+    }
+
+    // Every attempt that started records how long it ran. A loser cancelled
+    // mid-flight records the time until it was interrupted, a lower bound on its
+    // latency; dropping it would hide exactly the slow tail the threshold tracks
+    private <T> Future<T> submit(CompletionService<T> completionService, Callable<T> task) {
+        return completionService.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                attemptLatency.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    // Long-tail backend (98% ~5ms, 2% ~200ms): plain calls vs hedged calls
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        Random random = new Random();
+        Callable<Integer> backend = () -> {
+            Thread.sleep(random.nextInt(50) < 1 ? 200 : 5);
+            return 1;
+        };
+
+        LatencyHistogram plain = new LatencyHistogram();
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            pool.submit(backend).get();
+            plain.record(System.nanoTime() - start);
+        }
+
+        HedgedExecutor hedged = new HedgedExecutor(pool);
+        LatencyHistogram withHedging = new LatencyHistogram();
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            hedged.invoke(backend);
+            withHedging.record(System.nanoTime() - start);
+        }
+
+        System.out.println("Plain:  " + plain.summary());
+        System.out.println("Hedged: " + withHedging.summary());
+        System.out.println("        " + hedged.report());
+        pool.shutdown();
+    }
+}
\ No newline at end of file
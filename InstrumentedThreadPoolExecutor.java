@@ -0,0 +1,212 @@
+// InstrumentedThreadPoolExecutor.java
+// Drop-in ThreadPoolExecutor that measures, per task, how long it waited in the
+// queue and how long it ran, as rolling one-minute histograms. It also counts
+// rejected tasks and how many of those ran on the caller via CallerRunsPolicy.
+// Tasks are not wrapped: the queue, remove(), purge(), shutdownNow() and the
+// rejection handler all see the caller's own Runnable. Enqueue times are kept
+// in a side map keyed by task identity and timing happens in before/afterExecute.
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final LatencyHistogram.Rolling queueWait = new LatencyHistogram.Rolling(1, TimeUnit.MINUTES, 6);
+    private final LatencyHistogram.Rolling serviceTime = new LatencyHistogram.Rolling(1, TimeUnit.MINUTES, 6);
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    // The same Runnable may be queued more than once, so each key holds its enqueue times in order
+    private final ConcurrentHashMap<TaskKey, ArrayDeque<Long>> enqueuedAt = new ConcurrentHashMap<>();
+    // {start, queue wait} of the task running on this thread
+    private final ThreadLocal<long[]> running = ThreadLocal.withInitial(() -> new long[2]);
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+             Executors.defaultThreadFactory(), new AbortPolicy());
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue, RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue,
+             Executors.defaultThreadFactory(), handler);
+    }
+
+    public InstrumentedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        // The superclass constructor does not go through setRejectedExecutionHandler
+        super.setRejectedExecutionHandler(new CountingRejectionHandler(handler));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        submitted.increment();
+        long now = System.nanoTime();
+        enqueuedAt.compute(new TaskKey(command), (key, times) -> {
+            ArrayDeque<Long> queued = times != null ? times : new ArrayDeque<>(1);
+            queued.add(now);
+            return queued;
+        });
+        super.execute(command);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        long start = System.nanoTime();
+        long enqueued = takeEnqueueTime(r, start);
+        long[] timing = running.get();
+        timing[0] = start;
+        timing[1] = start - enqueued;
+        queueWait.record(timing[1]);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        long[] timing = running.get();
+        long service = System.nanoTime() - timing[0];
+        serviceTime.record(service);
+        taskTimed(timing[1], service);
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        boolean removed = super.remove(task);
+        if (removed) {
+            takeEnqueueTime(task, 0);
+        }
+        return removed;
+    }
+
+    // Cancelled futures leave the queue without passing through beforeExecute
+    @Override
+    public void purge() {
+        super.purge();
+        enqueuedAt.keySet().removeIf(key -> key.task instanceof Future && ((Future<?>) key.task).isCancelled());
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> neverRun = super.shutdownNow();
+        for (Runnable task : neverRun) {
+            takeEnqueueTime(task, 0);
+        }
+        return neverRun;
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        super.setRejectedExecutionHandler(new CountingRejectionHandler(handler));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return ((CountingRejectionHandler) super.getRejectedExecutionHandler()).delegate;
+    }
+
+    public LatencyHistogram queueWaitSnapshot() {
+        return queueWait.snapshot();
+    }
+
+    public LatencyHistogram serviceTimeSnapshot() {
+        return serviceTime.snapshot();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRuns.sum();
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT,
+                "pool=%d active=%d queue=%d submitted=%d completed=%d rejected=%d callerRuns=%d%n"
+                + "  queue wait:   %s%n"
+                + "  service time: %s",
+                getPoolSize(), getActiveCount(), getQueue().size(), getSubmittedCount(),
+                getCompletedTaskCount(), getRejectedCount(), getCallerRunsCount(),
+                queueWait.snapshot().summary(), serviceTime.snapshot().summary());
+    }
+
+    // Hook for subclasses that want every sample, not just the rolling window
+    protected void taskTimed(long queueWaitNanos, long serviceNanos) {
+    }
+
+    // Oldest enqueue time recorded for this task, or fallback if there is none
+    private long takeEnqueueTime(Runnable task, long fallback) {
+        long[] result = {fallback};
+        enqueuedAt.computeIfPresent(new TaskKey(task), (key, times) -> {
+            Long time = times.poll();
+            if (time != null) {
+                result[0] = time;
+            }
+            return times.isEmpty() ? null : times;
+        });
+        return result[0];
+    }
+
+    // Identity, not equals(): two equal Runnables are still two tasks
+    private static final class TaskKey {
+        final Runnable task;
+
+        TaskKey(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TaskKey && ((TaskKey) other).task == task;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(task);
+        }
+    }
+
+    private final class CountingRejectionHandler implements RejectedExecutionHandler {
+        private final RejectedExecutionHandler delegate;
+
+        CountingRejectionHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate instanceof CountingRejectionHandler
+                    ? ((CountingRejectionHandler) delegate).delegate : delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejected.increment();
+            takeEnqueueTime(r, 0);
+            if (delegate instanceof CallerRunsPolicy && !executor.isShutdown()) {
+                callerRuns.increment();
+                // Runs right here, so it did not wait in the queue
+                long start = System.nanoTime();
+                try {
+                    delegate.rejectedExecution(r, executor);
+                } finally {
+                    long service = System.nanoTime() - start;
+                    queueWait.record(0);
+                    serviceTime.record(service);
+                    taskTimed(0, service);
+                }
+                return;
+            }
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+}
\ No newline at end of file
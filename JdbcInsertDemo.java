@@ -2,9 +2,29 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class JdbcInsertDemo extends JFrame {
+    // Shared with EmployeeCsvImporter so both create the same schema
+    static final String CREATE_EMPLOYEES_TABLE_SQL = "CREATE TABLE IF NOT EXISTS employees (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "name VARCHAR(100) NOT NULL, " +
+            "email VARCHAR(100) NOT NULL, " +
+            "age INT, " +
+            "department VARCHAR(50), " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+            ")";
+    
     private JTextField urlField;
     private JTextField userField;
     private JPasswordField passwordField;
@@ -15,15 +35,30 @@ public class JdbcInsertDemo extends JFrame {
     private JTextField ageField;
     private JComboBox<String> departmentCombo;
     private JButton insertButton;
-    private JTextArea logArea;
+    // Bounded, so bursts of log lines cannot grow the UI's memory or flood the EDT with repaints
+    private final RingBufferLogModel logModel = new RingBufferLogModel(5_000, 30);
     
-    private Connection connection;
+    // All JDBC calls run on this worker; results come back through the EDT executor
+    private final DatabaseWorker databaseWorker = new DatabaseWorker();
+    private final Executor edt = SwingUtilities::invokeLater;
     
     public JdbcInsertDemo() {
         setTitle("JDBC Insert Demo");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Exit only once the worker has written everything that was queued
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         setSize(700, 500);
         setLocationRelativeTo(null);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                log("Finishing queued inserts before exit...");
+                databaseWorker.shutdown().whenCompleteAsync((ignored, error) -> {
+                    logModel.stop();
+                    dispose();
+                    System.exit(0);
+                }, edt);
+            }
+        });
         
         initUI();
         setVisible(true);
@@ -41,15 +76,13 @@ public class JdbcInsertDemo extends JFrame {
         JPanel insertPanel = createInsertPanel();
         tabbedPane.addTab("Insert Data", insertPanel);
         
-        // Log area
-        logArea = new JTextArea();
-        logArea.setEditable(false);
-        logArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        // Log view: repainted at most 30 times a second, only the visible rows
+        JList<String> logList = logModel.createList(8);
         
         // Add components to frame
         setLayout(new BorderLayout());
         add(tabbedPane, BorderLayout.CENTER);
-        add(new JScrollPane(logArea), BorderLayout.SOUTH);
+        add(new JScrollPane(logList), BorderLayout.SOUTH);
     }
     
     private JPanel createConnectionPanel() {
@@ -149,31 +182,29 @@ public class JdbcInsertDemo extends JFrame {
             String user = userField.getText();
             String password = new String(passwordField.getPassword());
             
-            try {
-                // Load JDBC driver
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                
-                // Establish connection
-                connection = DriverManager.getConnection(url, user, password);
-                
-                // Create table if it doesn't exist
-                createTableIfNotExists();
-                
-                log("Connected to database successfully!");
-                insertButton.setEnabled(true);
-                connectButton.setEnabled(false);
-                
-            } catch (ClassNotFoundException ex) {
-                log("Error: MySQL JDBC Driver not found.");
-                JOptionPane.showMessageDialog(JdbcInsertDemo.this, 
-                    "MySQL JDBC Driver not found. Please add the driver to your classpath.",
-                    "Driver Error", JOptionPane.ERROR_MESSAGE);
-            } catch (SQLException ex) {
-                log("Connection failed: " + ex.getMessage());
-                JOptionPane.showMessageDialog(JdbcInsertDemo.this, 
-                    "Connection failed: " + ex.getMessage(),
-                    "Connection Error", JOptionPane.ERROR_MESSAGE);
-            }
+            connectButton.setEnabled(false);
+            log("Connecting to " + url + " ...");
+            databaseWorker.connect(url, user, password).whenCompleteAsync((ignored, error) -> {
+                if (error == null) {
+                    log("Checked/created employees table successfully");
+                    log("Connected to database successfully!");
+                    insertButton.setEnabled(true);
+                    return;
+                }
+                connectButton.setEnabled(true);
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof ClassNotFoundException) {
+                    log("Error: MySQL JDBC Driver not found.");
+                    JOptionPane.showMessageDialog(JdbcInsertDemo.this, 
+                        "MySQL JDBC Driver not found. Please add the driver to your classpath.",
+                        "Driver Error", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    log("Connection failed: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(JdbcInsertDemo.this, 
+                        "Connection failed: " + cause.getMessage(),
+                        "Connection Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }, edt);
         }
     }
     
@@ -201,56 +232,28 @@ public class JdbcInsertDemo extends JFrame {
                 return;
             }
             
-            // Insert the record
-            try {
-                String sql = "INSERT INTO employees (name, email, age, department) VALUES (?, ?, ?, ?)";
-                PreparedStatement pstmt = connection.prepareStatement(sql);
-                pstmt.setString(1, name);
-                pstmt.setString(2, email);
-                pstmt.setInt(3, age);
-                pstmt.setString(4, department);
-                
-                int rowsAffected = pstmt.executeUpdate();
-                
-                if (rowsAffected > 0) {
-                    log("Inserted record successfully: " + name + ", " + email + ", " + age + ", " + department);
-                    JOptionPane.showMessageDialog(JdbcInsertDemo.this,
-                        "Record inserted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    
-                    // Clear fields
-                    nameField.setText("");
-                    emailField.setText("");
-                    ageField.setText("");
+            // Queue the insert and clear the form right away so the next entry can be typed;
+            // the outcome is logged instead of shown in a dialog so bursts never block the UI
+            String summary = name + ", " + email + ", " + age + ", " + department;
+            databaseWorker.insert(name, email, age, department).whenCompleteAsync((groupSize, error) -> {
+                if (error == null) {
+                    log("Inserted record successfully: " + summary + " (committed in a group of " + groupSize + ")");
+                } else {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    log("Insert failed: " + summary + ": " + cause.getMessage());
                 }
-                
-                pstmt.close();
-            } catch (SQLException ex) {
-                log("Insert failed: " + ex.getMessage());
-                JOptionPane.showMessageDialog(JdbcInsertDemo.this,
-                    "Insert failed: " + ex.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }
-    }
-    
-    private void createTableIfNotExists() throws SQLException {
-        String createTableSQL = "CREATE TABLE IF NOT EXISTS employees (" +
-                "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                "name VARCHAR(100) NOT NULL, " +
-                "email VARCHAR(100) NOT NULL, " +
-                "age INT, " +
-                "department VARCHAR(50), " +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-        
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createTableSQL);
-            log("Checked/created employees table successfully");
+            }, edt);
+            
+            // Clear fields
+            nameField.setText("");
+            emailField.setText("");
+            ageField.setText("");
         }
     }
     
+    // Safe from any thread; the line shows up on the next frame
     private void log(String message) {
-        logArea.append(message + "\n");
-        logArea.setCaretPosition(logArea.getDocument().getLength());
+        logModel.append(message);
     }
     
     public static void main(String[] args) {
@@ -263,4 +266,231 @@ public class JdbcInsertDemo extends JFrame {
         
         SwingUtilities.invokeLater(() -> new JdbcInsertDemo());
     }
+}
+
+// Single thread that does all JDBC work, borrowing connections from the
+// ConnectionPool in ConnectionPoolingDemo so a connection that breaks is evicted
+// and replaced instead of failing every later insert. Requests are queued;
+// inserts that are waiting together are written as one batch in one transaction
+// (group commit), so a burst of entries costs one round trip and one commit
+// instead of one each. If a group fails, its rows are retried one by one so
+// only the bad row fails.
+class DatabaseWorker {
+    private static final String INSERT_SQL = "INSERT INTO employees (name, email, age, department) VALUES (?, ?, ?, ?)";
+    private static final int MAX_GROUP = 500;
+    
+    private final BlockingQueue<Object> requests = new LinkedBlockingQueue<>();
+    private final Thread thread = new Thread(this::run, "jdbc-worker");
+    private final CompletableFuture<Void> terminated = new CompletableFuture<>();
+    private ConnectionPoolingDemo.ConnectionPool pool;
+    private volatile boolean running = true;
+    
+    DatabaseWorker() {
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    CompletableFuture<Void> connect(String url, String user, String password) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        requests.add((Runnable) () -> {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+                closePool();
+                // Each pooled connection keeps its prepared INSERT between groups.
+                // 10s borrow timeout, validate after 1s idle, report leaks after 30s
+                ConnectionPoolingDemo.ConnectionPool.ConnectionFactory driver =
+                        ConnectionPoolingDemo.ConnectionPool.driverManager(url, user, password);
+                StatementCache statements = new StatementCache(16);
+                pool = new ConnectionPoolingDemo.ConnectionPool(() -> statements.wrap(driver.create()),
+                        2, 10, 1, 30, TimeUnit.SECONDS);
+                try (Connection connection = pool.getConnection();
+                     Statement stmt = connection.createStatement()) {
+                    stmt.execute(JdbcInsertDemo.CREATE_EMPLOYEES_TABLE_SQL);
+                }
+                result.complete(null);
+            } catch (ClassNotFoundException | SQLException e) {
+                closePool();
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+    
+    // Completes with the size of the group the row was committed in
+    CompletableFuture<Integer> insert(String name, String email, int age, String department) {
+        PendingInsert insert = new PendingInsert(name, email, age, department);
+        requests.add(insert);
+        return insert.result;
+    }
+    
+    // Finishes the work queued so far, closes the pool, then completes; never blocks
+    CompletableFuture<Void> shutdown() {
+        requests.add((Runnable) () -> running = false);
+        return terminated;
+    }
+    
+    private void run() {
+        List<Object> drained = new ArrayList<>();
+        List<PendingInsert> group = new ArrayList<>();
+        try {
+            while (running) {
+                try {
+                    drained.add(requests.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                requests.drainTo(drained, MAX_GROUP - 1);
+                // Keep submission order: a connect between two inserts splits the group
+                for (Object request : drained) {
+                    if (request instanceof PendingInsert) {
+                        group.add((PendingInsert) request);
+                    } else {
+                        writeGroup(group);
+                        ((Runnable) request).run();
+                    }
+                }
+                writeGroup(group);
+                drained.clear();
+            }
+        } finally {
+            closePool();
+            // Anything queued after shutdown has nothing left to run it
+            drained.clear();
+            requests.drainTo(drained);
+            for (Object request : drained) {
+                if (request instanceof PendingInsert) {
+                    ((PendingInsert) request).result.completeExceptionally(new SQLException("Worker has shut down"));
+                }
+            }
+            terminated.complete(null);
+        }
+    }
+    
+    private void writeGroup(List<PendingInsert> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        try {
+            if (pool == null) {
+                throw new SQLException("Not connected");
+            }
+            // A connection that died before COMMIT was sent gets one retry on a fresh one;
+            // rows whose commit outcome is unknown are already failed and are not retried
+            for (int attempt = 1; ; attempt++) {
+                Connection connection = pool.getConnection();
+                try {
+                    writeGroup(connection, group);
+                    connection.close();
+                    return;
+                } catch (SQLException e) {
+                    if (attempt == 2 || !ConnectionPoolingDemo.ConnectionPool.isConnectionError(e)) {
+                        connection.close();
+                        throw e;
+                    }
+                    pool.evict(connection);
+                    group.removeIf(insert -> insert.result.isDone());
+                    if (group.isEmpty()) {
+                        return;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            for (PendingInsert insert : group) {
+                insert.result.completeExceptionally(e);
+            }
+        } finally {
+            group.clear();
+        }
+    }
+    
+    // Closing the pooled connection rolls back anything uncommitted and restores autocommit
+    private void writeGroup(Connection connection, List<PendingInsert> group) throws SQLException {
+        int size = group.size();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            connection.setAutoCommit(false);
+            try {
+                for (PendingInsert insert : group) {
+                    insert.bind(statement);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                commit(connection, group);
+                for (PendingInsert insert : group) {
+                    insert.result.complete(size);
+                }
+            } catch (SQLException e) {
+                if (ConnectionPoolingDemo.ConnectionPool.isConnectionError(e)) {
+                    throw e;
+                }
+                connection.rollback();
+                retryOneByOne(connection, statement, group);
+            }
+        }
+    }
+    
+    private void retryOneByOne(Connection connection, PreparedStatement statement, List<PendingInsert> group)
+            throws SQLException {
+        statement.clearBatch();
+        for (PendingInsert insert : group) {
+            try {
+                insert.bind(statement);
+                statement.executeUpdate();
+                commit(connection, List.of(insert));
+                insert.result.complete(1);
+            } catch (SQLException e) {
+                if (ConnectionPoolingDemo.ConnectionPool.isConnectionError(e)) {
+                    throw e; // the rows not completed yet are retried with the whole group
+                }
+                connection.rollback();
+                insert.result.completeExceptionally(e);
+            }
+        }
+    }
+    
+    // If the connection drops during COMMIT the server may or may not have applied
+    // it, so writing the rows again could insert them twice (email is not unique).
+    // Those rows fail as "outcome unknown"; the connection error is rethrown.
+    private static void commit(Connection connection, List<PendingInsert> inserts) throws SQLException {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            if (ConnectionPoolingDemo.ConnectionPool.isConnectionError(e)) {
+                SQLException unknown = new SQLException(
+                        "Connection lost during commit, the insert may or may not have been saved", e.getSQLState(), e);
+                for (PendingInsert insert : inserts) {
+                    insert.result.completeExceptionally(unknown);
+                }
+            }
+            throw e;
+        }
+    }
+    
+    private void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+    
+    private static final class PendingInsert {
+        private final String name;
+        private final String email;
+        private final int age;
+        private final String department;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+        
+        PendingInsert(String name, String email, int age, String department) {
+            this.name = name;
+            this.email = email;
+            this.age = age;
+            this.department = department;
+        }
+        
+        void bind(PreparedStatement statement) throws SQLException {
+            statement.setString(1, name);
+            statement.setString(2, email);
+            statement.setInt(3, age);
+            statement.setString(4, department);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,422 @@
+// JdbcSelectDemo.java
+// Browser for the employees table that stays fast with millions of rows.
+// The JTable is backed by EmployeePageModel, which keeps only the pages around
+// the visible rows in memory and loads the rest on a background thread:
+//   - keyset paging: "WHERE id > lastIdOfPreviousPage ORDER BY id LIMIT n",
+//     so a page costs the same at row 5,000,000 as at row 0; scrolling up from
+//     a loaded page reads "WHERE id < firstIdOfNextPage ORDER BY id DESC" and
+//     reverses the rows. A jump to a page with no loaded neighbour (dragging
+//     the scroll bar) falls back to LIMIT/OFFSET once and keyset paging
+//     continues from there in both directions
+//   - forward-only, read-only statements with the fetch size set to the page
+//     size, so a page comes back in one round trip
+//   - pages that scrolled out of the window plus prefetch margin are dropped,
+//     and queued loads for them are skipped
+//   - the status bar shows how long each page took and the p50/p99 so far
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class JdbcSelectDemo extends JFrame {
+    
+    private static final int PAGE_SIZE = 200;
+    private static final int PREFETCH_PAGES = 2;
+    
+    private JTextField urlField;
+    private JTextField userField;
+    private JPasswordField passwordField;
+    private JButton openButton;
+    private JTable table;
+    private JLabel statusLabel;
+    
+    private EmployeePageModel model;
+    
+    public JdbcSelectDemo() {
+        setTitle("JDBC Select Demo");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(900, 600);
+        setLocationRelativeTo(null);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (model != null) {
+                    model.close();
+                }
+            }
+        });
+        
+        initUI();
+        setVisible(true);
+    }
+    
+    private void initUI() {
+        // Connection bar
+        JPanel connectionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        urlField = new JTextField("jdbc:mysql://localhost:3306/testdb", 25);
+        userField = new JTextField("root", 8);
+        passwordField = new JPasswordField(8);
+        openButton = new JButton("Browse employees");
+        openButton.addActionListener(e -> open());
+        connectionPanel.add(new JLabel("URL:"));
+        connectionPanel.add(urlField);
+        connectionPanel.add(new JLabel("User:"));
+        connectionPanel.add(userField);
+        connectionPanel.add(new JLabel("Password:"));
+        connectionPanel.add(passwordField);
+        connectionPanel.add(openButton);
+        
+        // Table: no row sorter, sorting would need every row in memory
+        table = new JTable();
+        table.setFillsViewportHeight(true);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.getViewport().addChangeListener(e -> updateVisibleRows());
+        
+        statusLabel = new JLabel("Not connected");
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        
+        setLayout(new BorderLayout());
+        add(connectionPanel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+    
+    private void open() {
+        if (model != null) {
+            model.close();
+        }
+        String url = urlField.getText().trim();
+        String user = userField.getText().trim();
+        String password = new String(passwordField.getPassword());
+        
+        // Page queries are the same few statements over and over, so cache them per connection
+        StatementCache statements = new StatementCache(4);
+        ConnectionPoolingDemo.ConnectionPool.ConnectionFactory driver =
+                ConnectionPoolingDemo.ConnectionPool.driverManager(url, user, password);
+        ConnectionPoolingDemo.ConnectionPool pool = new ConnectionPoolingDemo.ConnectionPool(
+                () -> statements.wrap(driver.create()), 1, 10, 1, 0, TimeUnit.SECONDS);
+        
+        model = new EmployeePageModel(pool, PAGE_SIZE, PREFETCH_PAGES);
+        model.setStatusListener(statusLabel::setText);
+        model.setErrorListener(error -> JOptionPane.showMessageDialog(JdbcSelectDemo.this,
+                "Query failed: " + error.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE));
+        table.setModel(model);
+        statusLabel.setText("Counting rows...");
+        model.start();
+        updateVisibleRows();
+    }
+    
+    private void updateVisibleRows() {
+        if (model == null) {
+            return;
+        }
+        Rectangle view = table.getVisibleRect();
+        int first = table.rowAtPoint(new Point(0, view.y));
+        int last = table.rowAtPoint(new Point(0, view.y + view.height - 1));
+        if (first < 0) {
+            first = 0;
+        }
+        if (last < 0) {
+            last = Math.max(first, table.getRowCount() - 1);
+        }
+        model.setVisibleRows(first, last);
+    }
+    
+    public static void main(String[] args) {
+        // Set a nicer look and feel
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        
+        SwingUtilities.invokeLater(() -> new JdbcSelectDemo());
+    }
+}
+
+// Virtualized table model over the employees table. Everything except the
+// loader thread runs on the EDT; the loader only reads the visible range, which
+// it uses to skip loads the user has already scrolled away from.
+// Rows inserted or deleted while browsing can shift the rows of pages that were
+// loaded by offset; open the table again to start over.
+class EmployeePageModel extends AbstractTableModel {
+    
+    interface StatusListener {
+        void onStatus(String status);
+    }
+    
+    interface ErrorListener {
+        void onError(SQLException error);
+    }
+    
+    private static final String[] COLUMNS = {"ID", "Name", "Email", "Age", "Department", "Created"};
+    private static final String SELECT = "SELECT id, name, email, age, department, created_at FROM employees ";
+    private static final String KEYSET_SQL = SELECT + "WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String KEYSET_BACKWARD_SQL = SELECT + "WHERE id < ? ORDER BY id DESC LIMIT ?";
+    private static final String OFFSET_SQL = SELECT + "ORDER BY id LIMIT ? OFFSET ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM employees";
+    
+    private final ConnectionPoolingDemo.ConnectionPool pool;
+    private final int pageSize;
+    private final int prefetchPages;
+    
+    // EDT only
+    private final Map<Integer, Object[][]> pages = new HashMap<>();
+    private final Set<Integer> requested = new HashSet<>();
+    private int rowCount;
+    private StatusListener statusListener = status -> { };
+    private ErrorListener errorListener = error -> { };
+    
+    // Shared with the loader thread
+    private final BlockingDeque<Integer> loadQueue = new LinkedBlockingDeque<>();
+    private final Map<Integer, Long> pageStartsAfterId = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> pageEndsBeforeId = new ConcurrentHashMap<>();
+    private volatile int firstVisiblePage;
+    private volatile int lastVisiblePage;
+    private final Thread loader = new Thread(this::runLoader, "employee-page-loader");
+    
+    private final LatencyHistogram pageLatency = new LatencyHistogram();
+    private final LongAdder keysetLoads = new LongAdder();
+    private final LongAdder offsetLoads = new LongAdder();
+    private final LongAdder skippedLoads = new LongAdder();
+    
+    EmployeePageModel(ConnectionPoolingDemo.ConnectionPool pool, int pageSize, int prefetchPages) {
+        this.pool = pool;
+        this.pageSize = pageSize;
+        this.prefetchPages = prefetchPages;
+        pageStartsAfterId.put(0, Long.MIN_VALUE);
+        loader.setDaemon(true);
+    }
+    
+    void setStatusListener(StatusListener listener) {
+        this.statusListener = listener;
+    }
+    
+    void setErrorListener(ErrorListener listener) {
+        this.errorListener = listener;
+    }
+    
+    // Counts the rows, then starts loading whatever is visible
+    void start() {
+        loader.start();
+    }
+    
+    void close() {
+        loader.interrupt();
+        pool.close();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        Object[][] rows = pages.get(page);
+        if (rows == null) {
+            request(page, true);
+            return column == 1 ? "Loading..." : null;
+        }
+        int index = row - page * pageSize;
+        return index < rows.length ? rows[index][column] : null;
+    }
+    
+    // Called from the viewport listener; queues what is visible first, then the margin
+    void setVisibleRows(int firstRow, int lastRow) {
+        int first = firstRow / pageSize;
+        int last = lastRow / pageSize;
+        if (first == firstVisiblePage && last == lastVisiblePage && !pages.isEmpty()) {
+            return;
+        }
+        firstVisiblePage = first;
+        lastVisiblePage = last;
+        if (rowCount == 0) {
+            return;
+        }
+        for (int page = last; page >= first; page--) {
+            request(page, true);
+        }
+        for (int distance = 1; distance <= prefetchPages; distance++) {
+            request(last + distance, false);
+            request(first - distance, false);
+        }
+        evictDistantPages();
+    }
+    
+    String status() {
+        return String.format(Locale.ROOT,
+                "%,d rows | %d pages in memory | page loads: %d keyset, %d offset, %d skipped | page latency %s",
+                rowCount, pages.size(), keysetLoads.sum(), offsetLoads.sum(), skippedLoads.sum(),
+                pageLatency.count() == 0 ? "-" : "p50 " + LatencyHistogram.format(pageLatency.percentileNanos(50))
+                        + " p99 " + LatencyHistogram.format(pageLatency.percentileNanos(99)));
+    }
+    
+    private void request(int page, boolean visible) {
+        if (page < 0 || (long) page * pageSize >= rowCount || pages.containsKey(page) || !requested.add(page)) {
+            return;
+        }
+        // Visible pages jump the queue, so fast scrolling loads what is on screen first
+        if (visible) {
+            loadQueue.addFirst(page);
+        } else {
+            loadQueue.addLast(page);
+        }
+    }
+    
+    private boolean isNearWindow(int page) {
+        return page >= firstVisiblePage - prefetchPages && page <= lastVisiblePage + prefetchPages;
+    }
+    
+    private void evictDistantPages() {
+        for (Iterator<Integer> it = pages.keySet().iterator(); it.hasNext(); ) {
+            if (!isNearWindow(it.next())) {
+                it.remove();
+            }
+        }
+    }
+    
+    private void runLoader() {
+        try {
+            int count = countRows();
+            SwingUtilities.invokeLater(() -> {
+                rowCount = count;
+                fireTableDataChanged();
+                setVisibleRows(firstVisiblePage * pageSize, lastVisiblePage * pageSize);
+                statusListener.onStatus(status());
+            });
+            while (!Thread.currentThread().isInterrupted()) {
+                int page = loadQueue.takeFirst();
+                if (!isNearWindow(page)) {
+                    skippedLoads.increment();
+                    SwingUtilities.invokeLater(() -> requested.remove(page));
+                    continue;
+                }
+                long start = System.nanoTime();
+                boolean keyset = pageStartsAfterId.containsKey(page) || pageEndsBeforeId.containsKey(page);
+                try {
+                    Object[][] rows = loadPage(page);
+                    long nanos = System.nanoTime() - start;
+                    pageLatency.record(nanos);
+                    (keyset ? keysetLoads : offsetLoads).increment();
+                    SwingUtilities.invokeLater(() -> install(page, rows, keyset, nanos));
+                } catch (SQLException e) {
+                    // The page is requested again the next time its rows are painted
+                    SwingUtilities.invokeLater(() -> {
+                        requested.remove(page);
+                        statusListener.onStatus("Page " + page + " failed: " + e.getMessage());
+                    });
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        } catch (SQLException e) {
+            SwingUtilities.invokeLater(() -> {
+                statusListener.onStatus("Could not count rows: " + e.getMessage());
+                errorListener.onError(e);
+            });
+        }
+    }
+    
+    private void install(int page, Object[][] rows, boolean keyset, long nanos) {
+        requested.remove(page);
+        if (!isNearWindow(page)) {
+            return;
+        }
+        pages.put(page, rows);
+        int firstRow = page * pageSize;
+        int lastRow = Math.min(rowCount, firstRow + pageSize) - 1;
+        if (lastRow >= firstRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+        statusListener.onStatus(String.format(Locale.ROOT, "Page %d (%s) in %s | ", page,
+                keyset ? "keyset" : "offset", LatencyHistogram.format(nanos)) + status());
+    }
+    
+    private int countRows() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(COUNT_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+    
+    private Object[][] loadPage(int page) throws SQLException {
+        Long afterId = pageStartsAfterId.get(page);
+        Long beforeId = afterId == null ? pageEndsBeforeId.get(page) : null;
+        String sql = afterId != null ? KEYSET_SQL : beforeId != null ? KEYSET_BACKWARD_SQL : OFFSET_SQL;
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(pageSize);
+            if (afterId != null) {
+                statement.setLong(1, afterId);
+                statement.setInt(2, pageSize);
+            } else if (beforeId != null) {
+                statement.setLong(1, beforeId);
+                statement.setInt(2, pageSize);
+            } else {
+                statement.setInt(1, pageSize);
+                statement.setLong(2, (long) page * pageSize);
+            }
+            Object[][] rows = new Object[pageSize][];
+            int count = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next() && count < pageSize) {
+                    rows[count++] = new Object[] {
+                        resultSet.getLong(1),
+                        resultSet.getString(2),
+                        resultSet.getString(3),
+                        resultSet.getObject(4),
+                        resultSet.getString(5),
+                        resultSet.getTimestamp(6)
+                    };
+                }
+            }
+            if (beforeId != null) {
+                // Read newest first; put the rows back in id order
+                for (int i = 0, j = count - 1; i < j; i++, j--) {
+                    Object[] row = rows[i];
+                    rows[i] = rows[j];
+                    rows[j] = row;
+                }
+            }
+            if (count == pageSize) {
+                pageStartsAfterId.put(page + 1, (Long) rows[count - 1][0]);
+            }
+            if (count > 0 && page > 0) {
+                pageEndsBeforeId.put(page - 1, (Long) rows[0][0]);
+            }
+            if (count < pageSize) {
+                Object[][] trimmed = new Object[count][];
+                System.arraycopy(rows, 0, trimmed, 0, count);
+                return trimmed;
+            }
+            return rows;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+// LatencyHistogram.java
+// Lock-free log-linear histogram for latencies in nanoseconds.
+// Each power of two is split into 16 linear sub-buckets, so every recorded
+// value is reported within ~6% of its true value, whatever its magnitude.
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(value));
+        total.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public double meanNanos() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Returns the midpoint of the bucket holding the p-th quantile (0.0 - 1.0)
+    public long percentileNanos(double p) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += counts.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * p));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                long lower = bucketLowerBound(i);
+                long mid = lower + (bucketWidth(i) - 1) / 2;
+                return Math.min(mid, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void mergeInto(LatencyHistogram target) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                target.counts.addAndGet(i, c);
+            }
+        }
+        target.total.add(total.sum());
+        target.sum.add(sum.sum());
+        target.max.accumulateAndGet(max.get(), Math::max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    public String summary() {
+        return String.format(Locale.ROOT, "n=%d mean=%s p50=%s p90=%s p99=%s max=%s",
+                count(), format((long) meanNanos()), format(percentileNanos(0.50)),
+                format(percentileNanos(0.90)), format(percentileNanos(0.99)), format(maxNanos()));
+    }
+
+    public static String format(long nanos) {
+        if (nanos >= TimeUnit.SECONDS.toNanos(1)) {
+            return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+        }
+        if (nanos >= TimeUnit.MILLISECONDS.toNanos(1)) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        }
+        if (nanos >= TimeUnit.MICROSECONDS.toNanos(1)) {
+            return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+        }
+        return nanos + "ns";
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long bucketWidth(int index) {
+        return index < SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+    }
+
+    // Sliding-window view made of time slices; slices older than the window are
+    // recycled on the next record. Counts racing with a slice rotation may be lost,
+    // which is fine for monitoring.
+    public static class Rolling {
+        private final LatencyHistogram[] slices;
+        private final AtomicLong[] sliceEpochs;
+        private final long sliceNanos;
+
+        public Rolling(long window, TimeUnit unit, int sliceCount) {
+            this.slices = new LatencyHistogram[sliceCount];
+            this.sliceEpochs = new AtomicLong[sliceCount];
+            this.sliceNanos = Math.max(1, unit.toNanos(window) / sliceCount);
+            // Pre-assign each empty slice the next epoch it will serve, so no
+            // reset (and no lost count) is needed on the first pass
+            long epoch = System.nanoTime() / sliceNanos;
+            for (int i = 0; i < sliceCount; i++) {
+                slices[i] = new LatencyHistogram();
+                sliceEpochs[i] = new AtomicLong(epoch + Math.floorMod(i - epoch, (long) sliceCount));
+            }
+        }
+
+        public void record(long nanos) {
+            long epoch = System.nanoTime() / sliceNanos;
+            int index = (int) Math.floorMod(epoch, (long) slices.length);
+            long sliceEpoch = sliceEpochs[index].get();
+            if (sliceEpoch != epoch && sliceEpochs[index].compareAndSet(sliceEpoch, epoch)) {
+                slices[index].reset();
+            }
+            slices[index].record(nanos);
+        }
+
+        // Merged histogram of the slices still inside the window
+        public LatencyHistogram snapshot() {
+            long epoch = System.nanoTime() / sliceNanos;
+            LatencyHistogram merged = new LatencyHistogram();
+            for (int i = 0; i < slices.length; i++) {
+                if (epoch - sliceEpochs[i].get() < slices.length) {
+                    slices[i].mergeInto(merged);
+                }
+            }
+            return merged;
+        }
+    }
+}
\ No newline at end of file
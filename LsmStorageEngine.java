@@ -0,0 +1,895 @@
+// LsmStorageEngine.java
+// A small embedded log-structured merge (LSM) key/value store:
+//   - writes go to a write-ahead log and an in-memory sorted memtable
+//   - a full memtable is frozen and flushed in the background to an immutable,
+//     sorted segment file with a sparse index and a bloom filter
+//   - reads check the memtable, frozen memtables, then segments newest-first,
+//     skipping segments whose bloom filter rules the key out
+//   - once enough segments pile up, a background compaction merges them into one
+//     and drops deleted keys; it streams a k-way merge over the segment files, so
+//     it holds one entry per input in memory rather than the whole data set
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+public class LsmStorageEngine implements Closeable {
+
+    public static final long DEFAULT_MEMTABLE_BYTES = 4L * 1024 * 1024;
+    public static final int DEFAULT_COMPACTION_TRIGGER = 4;
+    private static final int MAX_FROZEN_MEMTABLES = 2;
+
+    // Identity-compared marker for deleted keys; an empty value is a different array
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    private final Path directory;
+    private final long memtableFlushBytes;
+    private final int compactionTrigger;
+    private final boolean syncWrites;
+
+    private final Object writeMonitor = new Object();
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lsm-background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong nextSequence = new AtomicLong(1);
+
+    private volatile State state;
+    private volatile boolean compactionScheduled;
+    private volatile boolean closed;
+    private volatile IOException backgroundFailure;
+    private WriteAheadLog wal;
+    private long memtableBytes;
+
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder segmentReads = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    // Immutable snapshot of where data lives; replaced (never mutated) on flush/compaction
+    private static final class State {
+        final ConcurrentSkipListMap<String, byte[]> memtable;
+        final List<Memtable> frozen;     // newest first
+        final List<Segment> segments;    // newest first
+
+        State(ConcurrentSkipListMap<String, byte[]> memtable, List<Memtable> frozen, List<Segment> segments) {
+            this.memtable = memtable;
+            this.frozen = Collections.unmodifiableList(frozen);
+            this.segments = Collections.unmodifiableList(segments);
+        }
+    }
+
+    private static final class Memtable {
+        final ConcurrentSkipListMap<String, byte[]> entries;
+        final long sequence;
+        final Path walPath;
+
+        Memtable(ConcurrentSkipListMap<String, byte[]> entries, long sequence, Path walPath) {
+            this.entries = entries;
+            this.sequence = sequence;
+            this.walPath = walPath;
+        }
+    }
+
+    public LsmStorageEngine(Path directory) throws IOException {
+        this(directory, DEFAULT_MEMTABLE_BYTES, DEFAULT_COMPACTION_TRIGGER, false);
+    }
+
+    public LsmStorageEngine(Path directory, long memtableFlushBytes, int compactionTrigger, boolean syncWrites)
+            throws IOException {
+        this.directory = directory;
+        this.memtableFlushBytes = memtableFlushBytes;
+        this.compactionTrigger = Math.max(2, compactionTrigger);
+        this.syncWrites = syncWrites;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    // ---------------------------------------------------------------- public API
+
+    public void put(String key, byte[] value) throws IOException {
+        write(key, Objects.requireNonNull(value, "value"));
+    }
+
+    public void delete(String key) throws IOException {
+        write(key, TOMBSTONE);
+    }
+
+    public byte[] get(String key) throws IOException {
+        State current = state;
+        byte[] value = current.memtable.get(key);
+        if (value == null) {
+            for (Memtable frozen : current.frozen) {
+                value = frozen.entries.get(key);
+                if (value != null) {
+                    break;
+                }
+            }
+        }
+        if (value == null) {
+            value = getFromSegments(key);
+        }
+        return value == TOMBSTONE ? null : value;
+    }
+
+    // Visits live entries whose key starts with prefix, in key order
+    public void scan(String prefix, BiConsumer<String, byte[]> visitor) throws IOException {
+        TreeMap<String, byte[]> merged = new TreeMap<>();
+        segmentLock.readLock().lock();
+        try {
+            State current = state;
+            // Overlay oldest to newest so newer versions win
+            for (int i = current.segments.size() - 1; i >= 0; i--) {
+                current.segments.get(i).scan(prefix, merged::put);
+            }
+            for (int i = current.frozen.size() - 1; i >= 0; i--) {
+                merged.putAll(prefixView(current.frozen.get(i).entries, prefix));
+            }
+            merged.putAll(prefixView(current.memtable, prefix));
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        merged.forEach((key, value) -> {
+            if (value != TOMBSTONE) {
+                visitor.accept(key, value);
+            }
+        });
+    }
+
+    public Map<String, Object> stats() {
+        State current = state;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("memtableEntries", current.memtable.size());
+        stats.put("frozenMemtables", current.frozen.size());
+        stats.put("segments", current.segments.size());
+        stats.put("segmentEntries", current.segments.stream().mapToLong(s -> s.entryCount).sum());
+        stats.put("segmentReads", segmentReads.sum());
+        stats.put("bloomNegatives", bloomNegatives.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("compactions", compactions.sum());
+        return stats;
+    }
+
+    // Forces the current memtable to disk and waits for background work to finish
+    public void flush() throws IOException {
+        synchronized (writeMonitor) {
+            if (!state.memtable.isEmpty()) {
+                rotateMemtable();
+            }
+        }
+        awaitBackground();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeMonitor) {
+            wal.close();
+        }
+        segmentLock.writeLock().lock();
+        try {
+            for (Segment segment : state.segments) {
+                segment.close();
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- write path
+
+    private void write(String key, byte[] value) throws IOException {
+        if (backgroundFailure != null) {
+            throw new IOException("Background flush/compaction failed", backgroundFailure);
+        }
+        synchronized (writeMonitor) {
+            // Back-pressure: don't let frozen memtables pile up faster than they flush
+            while (state.frozen.size() >= MAX_FROZEN_MEMTABLES) {
+                try {
+                    writeMonitor.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for memtable flush");
+                }
+            }
+            wal.append(key, value);
+            state.memtable.put(key, value);
+            memtableBytes += 2L * key.length() + value.length + 48;
+            if (memtableBytes >= memtableFlushBytes) {
+                rotateMemtable();
+            }
+        }
+    }
+
+    // Caller holds writeMonitor
+    private void rotateMemtable() throws IOException {
+        Memtable full = new Memtable(state.memtable, wal.sequence, wal.path);
+        wal.close();
+        wal = new WriteAheadLog(nextSequence.getAndIncrement());
+        memtableBytes = 0;
+
+        List<Memtable> frozen = new ArrayList<>(state.frozen);
+        frozen.add(0, full);
+        state = new State(new ConcurrentSkipListMap<>(), frozen, state.segments);
+        background.execute(() -> flushMemtable(full));
+    }
+
+    private void flushMemtable(Memtable memtable) {
+        try {
+            Path path = segmentPath(memtable.sequence, 0);
+            Segment segment = Segment.write(path, memtable.sequence, 0, memtable.entries.entrySet().iterator(),
+                                            memtable.entries.size(), false);
+            synchronized (writeMonitor) {
+                List<Memtable> frozen = new ArrayList<>(state.frozen);
+                frozen.remove(memtable);
+                List<Segment> segments = new ArrayList<>(state.segments);
+                segments.add(0, segment);
+                state = new State(state.memtable, frozen, segments);
+                writeMonitor.notifyAll();
+            }
+            Files.deleteIfExists(memtable.walPath);
+            flushes.increment();
+            if (state.segments.size() >= compactionTrigger && !compactionScheduled) {
+                compactionScheduled = true;
+                background.execute(this::compact);
+            }
+        } catch (IOException e) {
+            backgroundFailure = e;
+        }
+    }
+
+    // Full merge of every segment; since nothing older remains, tombstones can be dropped
+    private void compact() {
+        compactionScheduled = false;
+        List<Segment> inputs = state.segments;
+        if (inputs.size() < 2) {
+            return;
+        }
+        try {
+            long sequence = inputs.get(0).sequence;
+            int generation = inputs.stream().mapToInt(s -> s.generation).max().orElse(0) + 1;
+            // Upper bound: keys in several inputs and dropped tombstones make the output smaller
+            int expectedEntries = (int) Math.min(Integer.MAX_VALUE,
+                                                 inputs.stream().mapToLong(s -> s.entryCount).sum());
+            Segment output;
+            try (MergingIterator merged = new MergingIterator(inputs)) {
+                output = Segment.write(segmentPath(sequence, generation), sequence, generation,
+                                       merged, expectedEntries, true);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            synchronized (writeMonitor) {
+                List<Segment> segments = new ArrayList<>(state.segments);
+                segments.removeAll(inputs);
+                segments.add(output);
+                state = new State(state.memtable, state.frozen, segments);
+            }
+            segmentLock.writeLock().lock();
+            try {
+                for (Segment input : inputs) {
+                    input.close();
+                    Files.deleteIfExists(input.path);
+                }
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+            compactions.increment();
+        } catch (IOException e) {
+            backgroundFailure = e;
+        }
+    }
+
+    private void awaitBackground() throws IOException {
+        try {
+            background.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (backgroundFailure != null) {
+            throw new IOException("Background flush/compaction failed", backgroundFailure);
+        }
+    }
+
+    // ---------------------------------------------------------------- read path
+
+    private byte[] getFromSegments(String key) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        segmentLock.readLock().lock();
+        try {
+            for (Segment segment : state.segments) {
+                if (!segment.bloom.mightContain(keyBytes)) {
+                    bloomNegatives.increment();
+                    continue;
+                }
+                segmentReads.increment();
+                byte[] value = segment.get(key);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private static SortedMap<String, byte[]> prefixView(ConcurrentSkipListMap<String, byte[]> map, String prefix) {
+        return prefix.isEmpty() ? map : map.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    // ---------------------------------------------------------------- recovery
+
+    private void recover() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        List<Path> walFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.startsWith("seg-") && name.endsWith(".sst")) {
+                    String[] parts = name.substring(4, name.length() - 4).split("-");
+                    segments.add(Segment.open(path, Long.parseLong(parts[0]), Integer.parseInt(parts[1])));
+                } else if (name.startsWith("wal-") && name.endsWith(".log")) {
+                    walFiles.add(path);
+                } else if (name.endsWith(".tmp")) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        // A compacted segment covers every segment at or below its sequence;
+        // leftovers exist only if we crashed before deleting the inputs.
+        Segment newestCompacted = segments.stream().filter(s -> s.generation > 0)
+                .max(Comparator.comparingInt((Segment s) -> s.generation)).orElse(null);
+        if (newestCompacted != null) {
+            for (Iterator<Segment> it = segments.iterator(); it.hasNext(); ) {
+                Segment segment = it.next();
+                if (segment != newestCompacted && segment.sequence <= newestCompacted.sequence) {
+                    segment.close();
+                    Files.delete(segment.path);
+                    it.remove();
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong((Segment s) -> s.sequence).reversed());
+        long maxSequence = segments.stream().mapToLong(s -> s.sequence).max().orElse(0);
+
+        walFiles.sort(Comparator.naturalOrder());
+        ConcurrentSkipListMap<String, byte[]> memtable = new ConcurrentSkipListMap<>();
+        for (Path walFile : walFiles) {
+            WriteAheadLog.replay(walFile, memtable);
+            String name = walFile.getFileName().toString();
+            maxSequence = Math.max(maxSequence, Long.parseLong(name.substring(4, name.length() - 4)));
+        }
+        nextSequence.set(maxSequence + 1);
+        state = new State(memtable, new ArrayList<>(), segments);
+        wal = new WriteAheadLog(nextSequence.getAndIncrement());
+
+        if (!memtable.isEmpty()) {
+            synchronized (writeMonitor) {
+                rotateMemtable();
+            }
+            awaitBackground();
+        }
+        for (Path walFile : walFiles) {
+            Files.deleteIfExists(walFile);
+        }
+    }
+
+    private Path segmentPath(long sequence, int generation) {
+        return directory.resolve(String.format("seg-%016d-%04d.sst", sequence, generation));
+    }
+
+    // ---------------------------------------------------------------- write-ahead log
+
+    private final class WriteAheadLog implements Closeable {
+        final long sequence;
+        final Path path;
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+
+        WriteAheadLog(long sequence) throws IOException {
+            this.sequence = sequence;
+            this.path = directory.resolve(String.format("wal-%016d.log", sequence));
+            this.file = new FileOutputStream(path.toFile(), true);
+            this.out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024));
+        }
+
+        void append(String key, byte[] value) throws IOException {
+            writeEntry(out, key, value);
+            out.flush();
+            if (syncWrites) {
+                file.getFD().sync();
+            }
+        }
+
+        static void replay(Path path, Map<String, byte[]> memtable) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                while (true) {
+                    Map.Entry<String, byte[]> entry;
+                    try {
+                        entry = readEntry(in);
+                    } catch (EOFException e) {
+                        return; // clean end, or a torn final record from a crash
+                    }
+                    memtable.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    static void writeEntry(DataOutputStream out, String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        if (value == TOMBSTONE) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    static Map.Entry<String, byte[]> readEntry(DataInput in) throws IOException {
+        byte[] keyBytes = new byte[in.readInt()];
+        in.readFully(keyBytes);
+        int valueLength = in.readInt();
+        byte[] value = TOMBSTONE;
+        if (valueLength >= 0) {
+            value = new byte[valueLength];
+            in.readFully(value);
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(new String(keyBytes, StandardCharsets.UTF_8), value);
+    }
+
+    // ---------------------------------------------------------------- segment files
+
+    // Layout: [sorted entries][sparse index][bloom filter][footer]
+    // footer = indexOffset(long) bloomOffset(long) entryCount(long) magic(int)
+    private static final class Segment implements Closeable {
+        static final int MAGIC = 0x4C534D31; // "LSM1"
+        static final int FOOTER_BYTES = 8 + 8 + 8 + 4;
+        static final int INDEX_INTERVAL = 16;
+
+        final Path path;
+        final long sequence;
+        final int generation;
+        final long entryCount;
+        final BloomFilter bloom;
+        private final FileChannel channel;
+        private final String[] indexKeys;
+        private final long[] indexOffsets; // one extra slot: end of data region
+
+        private Segment(Path path, long sequence, int generation, FileChannel channel, long entryCount,
+                        String[] indexKeys, long[] indexOffsets, BloomFilter bloom) {
+            this.path = path;
+            this.sequence = sequence;
+            this.generation = generation;
+            this.channel = channel;
+            this.entryCount = entryCount;
+            this.indexKeys = indexKeys;
+            this.indexOffsets = indexOffsets;
+            this.bloom = bloom;
+        }
+
+        static Segment write(Path path, long sequence, int generation, Iterator<Map.Entry<String, byte[]>> entries,
+                             int expectedEntries, boolean dropTombstones) throws IOException {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            BloomFilter bloom = new BloomFilter(Math.max(1, expectedEntries));
+            List<String> indexKeys = new ArrayList<>();
+            List<Long> indexOffsets = new ArrayList<>();
+            long count = 0;
+
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+                 CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(file, 64 * 1024));
+                 DataOutputStream out = new DataOutputStream(counter)) {
+                while (entries.hasNext()) {
+                    Map.Entry<String, byte[]> entry = entries.next();
+                    if (dropTombstones && entry.getValue() == TOMBSTONE) {
+                        continue;
+                    }
+                    if (count % INDEX_INTERVAL == 0) {
+                        indexKeys.add(entry.getKey());
+                        indexOffsets.add(counter.count);
+                    }
+                    writeEntry(out, entry.getKey(), entry.getValue());
+                    bloom.add(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                    count++;
+                }
+
+                long indexOffset = counter.count;
+                out.writeInt(indexKeys.size());
+                for (int i = 0; i < indexKeys.size(); i++) {
+                    byte[] keyBytes = indexKeys.get(i).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(keyBytes.length);
+                    out.write(keyBytes);
+                    out.writeLong(indexOffsets.get(i));
+                }
+                long bloomOffset = counter.count;
+                bloom.writeTo(out);
+                out.writeLong(indexOffset);
+                out.writeLong(bloomOffset);
+                out.writeLong(count);
+                out.writeInt(MAGIC);
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            return open(path, sequence, generation);
+        }
+
+        static Segment open(Path path, long sequence, int generation) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                ByteBuffer footer = readFully(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+                long indexOffset = footer.getLong();
+                long bloomOffset = footer.getLong();
+                long entryCount = footer.getLong();
+                if (footer.getInt() != MAGIC) {
+                    throw new IOException("Corrupt segment file: " + path);
+                }
+
+                DataInputStream index = new DataInputStream(new ByteArrayInputStream(
+                        readFully(channel, indexOffset, (int) (bloomOffset - indexOffset)).array()));
+                int indexSize = index.readInt();
+                String[] keys = new String[indexSize];
+                long[] offsets = new long[indexSize + 1];
+                for (int i = 0; i < indexSize; i++) {
+                    byte[] keyBytes = new byte[index.readInt()];
+                    index.readFully(keyBytes);
+                    keys[i] = new String(keyBytes, StandardCharsets.UTF_8);
+                    offsets[i] = index.readLong();
+                }
+                offsets[indexSize] = indexOffset;
+
+                BloomFilter bloom = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(
+                        readFully(channel, bloomOffset, (int) (size - FOOTER_BYTES - bloomOffset)).array())));
+                return new Segment(path, sequence, generation, channel, entryCount, keys, offsets, bloom);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        byte[] get(String key) throws IOException {
+            int block = Arrays.binarySearch(indexKeys, key);
+            if (block < 0) {
+                block = -block - 2; // last index key <= key
+                if (block < 0) {
+                    return null;
+                }
+            }
+            long start = indexOffsets[block];
+            ByteBuffer data = readFully(channel, start, (int) (indexOffsets[block + 1] - start));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data.array()));
+            while (in.available() > 0) {
+                Map.Entry<String, byte[]> entry = readEntry(in);
+                int cmp = entry.getKey().compareTo(key);
+                if (cmp == 0) {
+                    return entry.getValue();
+                }
+                if (cmp > 0) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        // Every entry in key order, read sequentially; the caller closes the stream
+        DataInputStream openEntries() {
+            return new DataInputStream(new BufferedInputStream(
+                    new BoundedChannelInputStream(channel, 0, indexOffsets[indexKeys.length]), 64 * 1024));
+        }
+
+        void scan(String prefix, BiConsumer<String, byte[]> visitor) throws IOException {
+            int block = prefix.isEmpty() ? 0 : Arrays.binarySearch(indexKeys, prefix);
+            if (block < 0) {
+                block = Math.max(0, -block - 2);
+            }
+            if (indexKeys.length == 0) {
+                return;
+            }
+            long start = indexOffsets[block];
+            long end = indexOffsets[indexKeys.length];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new BoundedChannelInputStream(channel, start, end), 64 * 1024))) {
+                while (in.available() > 0) {
+                    Map.Entry<String, byte[]> entry = readEntry(in);
+                    if (entry.getKey().startsWith(prefix)) {
+                        visitor.accept(entry.getKey(), entry.getValue());
+                    } else if (entry.getKey().compareTo(prefix) > 0) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of segment file");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    // k-way merge of sorted segments given newest first; when several hold the
+    // same key only the newest version is returned
+    private static final class MergingIterator implements Iterator<Map.Entry<String, byte[]>>, Closeable {
+        private final List<Cursor> cursors = new ArrayList<>();
+        private final PriorityQueue<Cursor> heap = new PriorityQueue<>(
+                Comparator.comparing((Cursor c) -> c.current.getKey()).thenComparingInt(c -> c.age));
+
+        MergingIterator(List<Segment> segments) throws IOException {
+            try {
+                for (int i = 0; i < segments.size(); i++) {
+                    Cursor cursor = new Cursor(segments.get(i).openEntries(), i);
+                    cursors.add(cursor);
+                    if (cursor.advance()) {
+                        heap.add(cursor);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<String, byte[]> next() {
+            Cursor newest = heap.poll();
+            if (newest == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, byte[]> entry = newest.current;
+            advance(newest);
+            // Older versions of the same key sort right behind it
+            while (!heap.isEmpty() && heap.peek().current.getKey().equals(entry.getKey())) {
+                advance(heap.poll());
+            }
+            return entry;
+        }
+
+        // Segment.write takes a plain Iterator, so read failures travel unchecked
+        private void advance(Cursor cursor) {
+            try {
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Cursor cursor : cursors) {
+                cursor.in.close();
+            }
+        }
+
+        private static final class Cursor {
+            final DataInputStream in;
+            final int age; // position in the newest-first list; lower wins ties
+            Map.Entry<String, byte[]> current;
+
+            Cursor(DataInputStream in, int age) {
+                this.in = in;
+                this.age = age;
+            }
+
+            boolean advance() throws IOException {
+                current = in.available() > 0 ? readEntry(in) : null;
+                return current != null;
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    // Positional reads so concurrent scans never move a shared channel position
+    private static final class BoundedChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        BoundedChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+
+    // ~10 bits per key and 7 hash functions: roughly 1% false positives
+    static final class BloomFilter {
+        private static final int BITS_PER_KEY = 10;
+        private static final int HASHES = 7;
+        private final long[] bits;
+
+        BloomFilter(int expectedKeys) {
+            this(new long[Math.max(1, (expectedKeys * BITS_PER_KEY + 63) / 64)]);
+        }
+
+        private BloomFilter(long[] bits) {
+            this.bits = bits;
+        }
+
+        void add(byte[] key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            long numBits = bits.length * 64L;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, numBits);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(byte[] key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            long numBits = bits.length * 64L;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, numBits);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(bits.length);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+        }
+
+        static BloomFilter readFrom(DataInputStream in) throws IOException {
+            long[] bits = new long[in.readInt()];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = in.readLong();
+            }
+            return new BloomFilter(bits);
+        }
+
+        // FNV-1a followed by a murmur3 finalizer for good high/low bit mixing
+        private static long hash(byte[] key) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : key) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    // ---------------------------------------------------------------- demo
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("lsm-demo");
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.println("LSM storage engine demo in " + dir + " with " + n + " keys\n");
+
+        try (LsmStorageEngine engine = new LsmStorageEngine(dir, 1024 * 1024, 4, false)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                engine.put(String.format("key:%08d", i), ("value-" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            long writeNanos = System.nanoTime() - start;
+
+            for (int i = 0; i < n; i += 10) {
+                engine.delete(String.format("key:%08d", i));
+            }
+            engine.flush();
+
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < n; i++) {
+                if (engine.get(String.format("key:%08d", i)) != null) {
+                    found++;
+                }
+            }
+            long readNanos = System.nanoTime() - start;
+
+            System.out.printf("Writes: %,.0f ops/s%n", n / (writeNanos / 1e9));
+            System.out.printf("Reads:  %,.0f ops/s (%d of %d keys live)%n", n / (readNanos / 1e9), found, n);
+            System.out.println("Stats:  " + engine.stats());
+        }
+
+        try (LsmStorageEngine reopened = new LsmStorageEngine(dir)) {
+            System.out.println("After reopen, key:00000001 = "
+                    + new String(reopened.get("key:00000001"), StandardCharsets.UTF_8));
+        }
+    }
+}
\ No newline at end of file
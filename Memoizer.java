@@ -0,0 +1,187 @@
+// Memoizer.java
+// Concurrent result cache that stores futures rather than values, so a caller
+// asking for a key that is still being computed waits for that computation
+// instead of starting a duplicate one.
+//
+//   - bounded: at most maxSize entries, evicted in CLOCK (second-chance) order,
+//     a cheap approximation of LRU that needs no lock on the read path
+//   - TTL: a completed value expires ttl after it was computed
+//   - failures are shared with the callers already waiting on them but are
+//     never cached, so the next call retries (e.g. CalculationTask's
+//     "Bad number" for multiples of 7)
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Memoizer<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<K, V>> cache = new ConcurrentHashMap<>();
+    // One node per entry ever created; nodes whose entry has left the map are
+    // dropped when the hand reaches them
+    private final Queue<Entry<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clockNodes = new AtomicInteger();
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder inFlightHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public Memoizer(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    // Returns the cached value for key, or runs task on the calling thread to compute it
+    public V get(K key, Callable<? extends V> task) throws InterruptedException, ExecutionException {
+        while (true) {
+            Entry<K, V> entry = cache.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                if (cache.remove(key, entry)) {
+                    expirations.increment();
+                }
+                entry = null;
+            }
+            if (entry != null) {
+                entry.referenced = true;
+                if (entry.future.isDone()) {
+                    hits.increment();
+                } else {
+                    inFlightHits.increment();
+                }
+                return await(key, entry);
+            }
+
+            Entry<K, V> created = new Entry<>(key, task);
+            if (cache.putIfAbsent(key, created) != null) {
+                continue; // lost the race: use the other caller's entry
+            }
+            misses.increment();
+            clock.add(created);
+            clockNodes.incrementAndGet();
+            evictIfNeeded();
+            created.future.run();
+            created.expiresAtNanos = System.nanoTime() + ttlNanos;
+            return await(key, created);
+        }
+    }
+
+    public void invalidate(K key) {
+        cache.remove(key);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public double getHitRate() {
+        long total = hits.sum() + inFlightHits.sum() + misses.sum();
+        return total == 0 ? 0.0 : (double) (hits.sum() + inFlightHits.sum()) / total;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT,
+                "size=%d hits=%d inFlightHits=%d misses=%d hitRate=%.1f%% failures(not cached)=%d "
+                + "evictions=%d expirations=%d",
+                cache.size(), hits.sum(), inFlightHits.sum(), misses.sum(), getHitRate() * 100,
+                failures.sum(), evictions.sum(), expirations.sum());
+    }
+
+    private V await(K key, Entry<K, V> entry) throws InterruptedException, ExecutionException {
+        try {
+            return entry.future.get();
+        } catch (ExecutionException | CancellationException e) {
+            // Only the first caller to see the failure counts it
+            if (cache.remove(key, entry)) {
+                failures.increment();
+            }
+            throw e;
+        }
+    }
+
+    // Second chance: an entry read since the hand last passed it goes to the back once.
+    // The hand also runs when stale nodes (failures, expiries, invalidations) pile
+    // up below maxSize, so the queue stays within about twice the cache size.
+    private void evictIfNeeded() {
+        int budget = clockNodes.get() + maxSize;
+        while ((cache.size() > maxSize || clockNodes.get() > 2 * maxSize) && budget-- > 0) {
+            Entry<K, V> entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            if (cache.get(entry.key) != entry) {
+                clockNodes.decrementAndGet(); // already removed by invalidate, expiry or failure
+                continue;
+            }
+            if (cache.size() <= maxSize) {
+                clock.add(entry); // only pruning: keep live entries in their place in the cycle
+            } else if (entry.referenced) {
+                entry.referenced = false;
+                clock.add(entry);
+            } else if (cache.remove(entry.key, entry)) {
+                evictions.increment();
+                clockNodes.decrementAndGet();
+            } else {
+                clockNodes.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        final FutureTask<V> future;
+        volatile long expiresAtNanos = Long.MAX_VALUE;
+        volatile boolean referenced;
+
+        Entry(K key, Callable<? extends V> task) {
+            this.key = key;
+            this.future = new FutureTask<>(task::call);
+        }
+
+        boolean isExpired(long now) {
+            return expiresAtNanos != Long.MAX_VALUE && now - expiresAtNanos > 0;
+        }
+    }
+
+    // Eight threads ask for the squares of 1..10 over and over: each number is
+    // computed once, concurrent duplicates wait for the first computation, and
+    // the failing 7 is retried instead of being cached.
+    public static void main(String[] args) throws InterruptedException {
+        Memoizer<Integer, Integer> squares = new Memoizer<>(16, 30, TimeUnit.SECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 40; i++) {
+            int number = 1 + i % 10;
+            futures.add(executor.submit(() -> {
+                try {
+                    return number + "^2 = " + squares.get(number, new ExecutorServiceDemo.CalculationTask(number));
+                } catch (ExecutionException e) {
+                    return number + " failed: " + e.getCause().getMessage();
+                }
+            }));
+        }
+        for (Future<String> future : futures) {
+            try {
+                System.out.println(future.get());
+            } catch (ExecutionException e) {
+                System.out.println("Unexpected failure: " + e.getCause());
+            }
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.println(squares.report());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,400 @@
+// MpmcRingBufferQueue.java
+// Bounded multi-producer/multi-consumer BlockingQueue built on a ring buffer
+// (Dmitry Vyukov's bounded MPMC algorithm). Each slot carries a sequence number,
+// so producers and consumers only contend on their own CAS'd cursor (head or
+// tail), each padded onto its own cache line. Unlike ArrayBlockingQueue there is
+// no lock shared between the put and take sides.
+//
+// Blocking callers wait using a WaitStrategy:
+//   SPIN  - busy-spin; lowest latency, burns a core per waiting thread
+//   YIELD - spin briefly, then Thread.yield()
+//   PARK  - spin, yield, then park until signalled (good default for thread pools)
+//
+// Notes for ThreadPoolExecutor use: capacity is rounded up to a power of two, and
+// elements cannot be removed from the middle, so remove(Object) and the
+// iterator's remove() throw UnsupportedOperationException. ThreadPoolExecutor
+// .remove() and purge() therefore fail loudly; cancel tasks instead, since a
+// cancelled FutureTask does nothing when it is dequeued.
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+public class MpmcRingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    public enum WaitStrategy { SPIN, YIELD, PARK }
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    // Upper bound on a park; wake-ups are signalled, this only covers races
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final PaddedCounter tail = new PaddedCounter(); // next position to enqueue
+    private final PaddedCounter head = new PaddedCounter(); // next position to dequeue
+    private final WaitStrategy waitStrategy;
+    private final Queue<Thread> waitingTakers = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> waitingPutters = new ConcurrentLinkedQueue<>();
+
+    public MpmcRingBufferQueue(int requestedCapacity) {
+        this(requestedCapacity, WaitStrategy.PARK);
+    }
+
+    public MpmcRingBufferQueue(int requestedCapacity, WaitStrategy waitStrategy) {
+        if (requestedCapacity < 1 || requestedCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        this.capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+    }
+
+    // ---------------------------------------------------------------- non-blocking core
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long difference = sequences.get(index) - pos;
+            if (difference == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, e);
+                    sequences.set(index, pos + 1); // publishes the element
+                    signal(waitingTakers);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (difference < 0) {
+                return false; // the slot still holds an element from one lap ago: full
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long difference = sequences.get(index) - (pos + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequences.set(index, pos + capacity); // frees the slot for the next lap
+                    signal(waitingPutters);
+                    return e;
+                }
+                pos = head.get();
+            } else if (difference < 0) {
+                return null; // not yet published: empty
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) pos & mask;
+            if (sequences.get(index) != pos + 1) {
+                return null;
+            }
+            E e = buffer.get(index);
+            if (e != null && head.get() == pos) {
+                return e;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- blocking operations
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        for (int attempt = 0; !offer(e); attempt++) {
+            idle(attempt, waitingPutters, Long.MAX_VALUE, this::hasFreeSlot);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int attempt = 0; !offer(e); attempt++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                signal(waitingPutters); // hand on a wake-up we may have taken
+                return false;
+            }
+            idle(attempt, waitingPutters, remaining, this::hasFreeSlot);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        for (int attempt = 0; (e = poll()) == null; attempt++) {
+            idle(attempt, waitingTakers, Long.MAX_VALUE, this::hasElement);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        for (int attempt = 0; (e = poll()) == null; attempt++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                signal(waitingTakers); // hand on a wake-up we may have taken
+                return null;
+            }
+            idle(attempt, waitingTakers, remaining, this::hasElement);
+        }
+        return e;
+    }
+
+    private void idle(int attempt, Queue<Thread> waiters, long remainingNanos, BooleanSupplier ready)
+            throws InterruptedException {
+        if (Thread.interrupted()) {
+            signal(waiters);
+            throw new InterruptedException();
+        }
+        if (waitStrategy == WaitStrategy.SPIN || attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (waitStrategy == WaitStrategy.YIELD || attempt < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            // Register before re-checking, so a concurrent offer/poll either
+            // sees us as a waiter or we see its element/slot and skip the park.
+            // A signal dequeues the waiter it wakes; if the retry then loses the
+            // race, the caller's loop comes back here and registers again.
+            Thread current = Thread.currentThread();
+            waiters.add(current);
+            try {
+                if (!ready.getAsBoolean()) {
+                    LockSupport.parkNanos(this, Math.min(remainingNanos, MAX_PARK_NANOS));
+                }
+            } finally {
+                waiters.remove(current);
+            }
+        }
+    }
+
+    private boolean hasElement() {
+        long pos = head.get();
+        return sequences.get((int) pos & mask) == pos + 1;
+    }
+
+    private boolean hasFreeSlot() {
+        long pos = tail.get();
+        return sequences.get((int) pos & mask) == pos;
+    }
+
+    // Wakes the longest waiting thread and takes it off the queue, so the next
+    // signal goes to the next waiter instead of the same one again
+    private static void signal(Queue<Thread> waiters) {
+        if (!waiters.isEmpty()) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- collection views
+
+    @Override
+    public int size() {
+        while (true) {
+            long h = head.get();
+            long t = tail.get();
+            if (head.get() == h) {
+                return (int) Math.max(0, Math.min(capacity, t - h));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int drained = 0;
+        E e;
+        while (drained < maxElements && (e = poll()) != null) {
+            c.add(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    // Elements can only leave from the head; answering false would claim the
+    // element is absent when it may well be queued
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("MpmcRingBufferQueue only removes from the head");
+    }
+
+    // Weakly consistent snapshot of the elements currently published
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long start = head.get();
+        long end = tail.get();
+        for (long pos = start; pos < end && pos - start < capacity; pos++) {
+            int index = (int) pos & mask;
+            E e = buffer.get(index);
+            if (e != null && sequences.get(index) == pos + 1) {
+                snapshot.add(e);
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    // ---------------------------------------------------------------- padded cursor
+
+    // Padding on both sides keeps head and tail on separate cache lines
+    abstract static class LeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    abstract static class CounterValue extends LeftPadding {
+        volatile long value;
+    }
+
+    static final class PaddedCounter extends CounterValue {
+        private static final AtomicLongFieldUpdater<CounterValue> UPDATER =
+                AtomicLongFieldUpdater.newUpdater(CounterValue.class, "value");
+        long p11, p12, p13, p14, p15, p16, p17;
+
+        long get() {
+            return value;
+        }
+
+        boolean compareAndSet(long expected, long update) {
+            return UPDATER.compareAndSet(this, expected, update);
+        }
+    }
+}
+
+// Producer/consumer throughput of MpmcRingBufferQueue vs ArrayBlockingQueue and
+// LinkedBlockingQueue with N producers + N consumers (put/take), N = 1..64, and
+// the same queues plugged into a ThreadPoolExecutor.
+// Usage: java RingBufferQueueBenchmark [itemsPerRun]
+class RingBufferQueueBenchmark {
+    private static final int CAPACITY = 1024;
+
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("=== Queue handoff throughput, " + items + " items, capacity " + CAPACITY
+                + ", " + Runtime.getRuntime().availableProcessors() + " cores ===");
+        System.out.printf("%-8s %14s %14s %14s %14s%n", "threads", "ring(park)", "ring(yield)",
+                          "ArrayBQ", "LinkedBQ");
+
+        // Warm-up pass
+        handoff(new MpmcRingBufferQueue<>(CAPACITY), 2, items / 4);
+        handoff(new ArrayBlockingQueue<>(CAPACITY), 2, items / 4);
+
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            System.out.printf("%-8s %,12.0f/s %,12.0f/s %,12.0f/s %,12.0f/s%n", threads + "P+" + threads + "C",
+                    handoff(new MpmcRingBufferQueue<>(CAPACITY, MpmcRingBufferQueue.WaitStrategy.PARK), threads, items),
+                    handoff(new MpmcRingBufferQueue<>(CAPACITY, MpmcRingBufferQueue.WaitStrategy.YIELD), threads, items),
+                    handoff(new ArrayBlockingQueue<>(CAPACITY), threads, items),
+                    handoff(new LinkedBlockingQueue<>(CAPACITY), threads, items));
+        }
+
+        System.out.println("\n=== ThreadPoolExecutor(4 threads) work queue, " + items / 4 + " tiny tasks ===");
+        System.out.printf("ring:     %,.0f tasks/s%n", executor(new MpmcRingBufferQueue<>(CAPACITY), items / 4));
+        System.out.printf("ArrayBQ:  %,.0f tasks/s%n", executor(new ArrayBlockingQueue<>(CAPACITY), items / 4));
+        System.out.printf("LinkedBQ: %,.0f tasks/s%n", executor(new LinkedBlockingQueue<>(CAPACITY), items / 4));
+    }
+
+    private static double handoff(BlockingQueue<Integer> queue, int threads, int items) throws Exception {
+        int perProducer = items / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> all = new ArrayList<>();
+        for (int p = 0; p < threads; p++) {
+            all.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            all.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.take();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        all.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : all) {
+            thread.join();
+        }
+        return perProducer * (double) threads / ((System.nanoTime() - begin) / 1e9);
+    }
+
+    private static double executor(BlockingQueue<Runnable> queue, int tasks) throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS, queue,
+                                                             new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.prestartAllCoreThreads();
+        LongAdder counter = new LongAdder();
+        long begin = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(counter::increment);
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return tasks / ((System.nanoTime() - begin) / 1e9);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,431 @@
+// PartitionedExecutor.java
+// Key-affine executor: tasks with the same key run one after another in
+// submission order, tasks with different keys run in parallel.
+//
+// Keys hash to one of many virtual slots, and each slot maps to a lane (one
+// dedicated thread plus its own queue). Lanes share no locks; the only shared
+// state is the slot table, which is read and changed with CAS. A rebalancer
+// moves slots away from an overloaded lane without breaking per-key order:
+//   slotToLane[slot] == MIGRATING while a move is in progress
+//   pending[slot]    == tasks queued or running for the slot on its lane
+// While a slot is MIGRATING, new tasks for it are parked (under that slot's
+// Migration monitor, the only lock, and only for slots being moved). Once
+// pending drops to zero the old lane has run everything for the slot, so the
+// parked tasks go to the new lane and the mapping flips.
+// A single hot key can never be split across lanes, so the rebalancer moves
+// the colder keys that share its lane instead.
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PartitionedExecutor {
+
+    private static final int MIGRATING = -1;
+    private static final int SLOTS_PER_LANE = 16;
+    private static final Runnable SHUTDOWN = () -> { };
+
+    private final Lane[] lanes;
+    private final int slotMask;
+    private final AtomicIntegerArray slotToLane;
+    private final AtomicIntegerArray pending;
+    private final AtomicLongArray slotLoad;
+    private final AtomicReferenceArray<Migration> migrationBySlot;
+    private final ScheduledExecutorService rebalancer;
+    private final LongAdder migrations = new LongAdder();
+    private final AtomicLong outstanding = new AtomicLong(); // accepted tasks that have not run yet
+    private final AtomicBoolean lanesStopping = new AtomicBoolean();
+    private volatile boolean shutdown;
+
+    public PartitionedExecutor(int laneCount) {
+        this(laneCount, 200, TimeUnit.MILLISECONDS);
+    }
+
+    public PartitionedExecutor(int laneCount, long rebalanceInterval, TimeUnit unit) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be positive");
+        }
+        int slots = Integer.highestOneBit(laneCount * SLOTS_PER_LANE - 1) << 1;
+        this.slotMask = slots - 1;
+        this.slotToLane = new AtomicIntegerArray(slots);
+        this.pending = new AtomicIntegerArray(slots);
+        this.slotLoad = new AtomicLongArray(slots);
+        this.migrationBySlot = new AtomicReferenceArray<>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            slotToLane.set(slot, slot % laneCount);
+        }
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+            lanes[i].thread.start();
+        }
+        this.rebalancer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partitioned-executor-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebalancer.scheduleWithFixedDelay(this::rebalance, rebalanceInterval, rebalanceInterval, unit);
+    }
+
+    public void execute(Object key, Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        // Counted before the check, so shutdown() cannot stop the lanes under a task it accepts
+        outstanding.incrementAndGet();
+        if (shutdown) {
+            finished();
+            throw new RejectedExecutionException("PartitionedExecutor has been shut down");
+        }
+        int slot = slotFor(key);
+        SlotTask slotTask = new SlotTask(slot, task);
+        slotLoad.incrementAndGet(slot);
+        while (true) {
+            int lane = slotToLane.get(slot);
+            if (lane == MIGRATING) {
+                if (park(slot, slotTask)) {
+                    return;
+                }
+                continue;
+            }
+            pending.incrementAndGet(slot);
+            // A move that starts after this check waits for our task through pending;
+            // one that started before it changed the mapping, so retry
+            if (slotToLane.get(slot) == lane) {
+                lanes[lane].queue.add(slotTask);
+                return;
+            }
+            release(slot);
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Object key, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(key, () -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    public int getQueueDepth(int lane) {
+        return lanes[lane].queue.size();
+    }
+
+    public int[] getQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].queue.size();
+        }
+        return depths;
+    }
+
+    public long getMigrationCount() {
+        return migrations.sum();
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "lanes=%d migrations=%d%n",
+                lanes.length, getMigrationCount()));
+        for (Lane lane : lanes) {
+            sb.append(String.format(Locale.ROOT, "  lane %d: depth=%d completed=%d failed=%d%n",
+                    lane.index, lane.queue.size(), lane.completed.sum(), lane.failed.sum()));
+        }
+        return sb.toString();
+    }
+
+    // Lets queued tasks finish, including ones parked by a slot move; no new
+    // tasks are accepted. The lanes stop once the last accepted task has run.
+    public void shutdown() {
+        shutdown = true;
+        rebalancer.shutdownNow();
+        if (outstanding.get() == 0) {
+            stopLanes();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Lane lane : lanes) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            lane.thread.join(remaining);
+            if (lane.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void finished() {
+        if (outstanding.decrementAndGet() == 0 && shutdown) {
+            stopLanes();
+        }
+    }
+
+    private void stopLanes() {
+        if (lanesStopping.compareAndSet(false, true)) {
+            for (Lane lane : lanes) {
+                lane.queue.add(SHUTDOWN);
+            }
+        }
+    }
+
+    private int slotFor(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x9E3779B1;
+        return (h ^ h >>> 15) & slotMask;
+    }
+
+    // Moves cold slots from the lane with the most load in the last interval to the
+    // lane with the least, skipping the hottest slot (its key cannot be split anyway)
+    private void rebalance() {
+        try {
+            int slots = slotMask + 1;
+            long[] load = new long[slots];
+            long[] laneLoad = new long[lanes.length];
+            long total = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                load[slot] = slotLoad.getAndSet(slot, 0);
+                int lane = slotToLane.get(slot);
+                if (lane != MIGRATING) {
+                    laneLoad[lane] += load[slot];
+                }
+                total += load[slot];
+            }
+            if (total == 0 || lanes.length == 1) {
+                return;
+            }
+
+            int busiest = 0;
+            int idlest = 0;
+            for (int i = 1; i < lanes.length; i++) {
+                if (score(i, laneLoad) > score(busiest, laneLoad)) {
+                    busiest = i;
+                }
+                if (score(i, laneLoad) < score(idlest, laneLoad)) {
+                    idlest = i;
+                }
+            }
+            double fairShare = (double) total / lanes.length;
+            if (laneLoad[busiest] < fairShare * 1.5) {
+                return;
+            }
+
+            List<Integer> candidates = new ArrayList<>();
+            int hottest = -1;
+            for (int slot = 0; slot < slots; slot++) {
+                if (slotToLane.get(slot) == busiest && load[slot] > 0) {
+                    candidates.add(slot);
+                    if (hottest < 0 || load[slot] > load[hottest]) {
+                        hottest = slot;
+                    }
+                }
+            }
+            candidates.sort((a, b) -> Long.compare(load[b], load[a]));
+            for (int slot : candidates) {
+                if (slot == hottest || laneLoad[idlest] + load[slot] > fairShare) {
+                    continue;
+                }
+                if (move(slot, busiest, idlest)) {
+                    laneLoad[busiest] -= load[slot];
+                    laneLoad[idlest] += load[slot];
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let a bad pass kill the scheduled rebalancer
+            e.printStackTrace();
+        }
+    }
+
+    private long score(int lane, long[] laneLoad) {
+        return laneLoad[lane] + lanes[lane].queue.size();
+    }
+
+    private boolean move(int slot, int from, int to) {
+        Migration migration = new Migration(to);
+        migrationBySlot.set(slot, migration);
+        if (!slotToLane.compareAndSet(slot, from, MIGRATING)) {
+            migrationBySlot.set(slot, null);
+            return false;
+        }
+        migrations.increment();
+        tryCompleteMove(slot);
+        return true;
+    }
+
+    private boolean park(int slot, SlotTask task) {
+        Migration migration = migrationBySlot.get(slot);
+        if (migration == null) {
+            return false;
+        }
+        synchronized (migration) {
+            if (migration.done) {
+                return false;
+            }
+            migration.parked.add(task);
+            return true;
+        }
+    }
+
+    private void release(int slot) {
+        if (pending.decrementAndGet(slot) == 0 && slotToLane.get(slot) == MIGRATING) {
+            tryCompleteMove(slot);
+        }
+    }
+
+    // Called whenever pending may have reached zero for a MIGRATING slot
+    private void tryCompleteMove(int slot) {
+        Migration migration = migrationBySlot.get(slot);
+        if (migration == null) {
+            return;
+        }
+        synchronized (migration) {
+            if (migration.done || pending.get(slot) != 0) {
+                return;
+            }
+            // Nothing for this slot is left on the old lane; parked tasks keep their order
+            Lane target = lanes[migration.to];
+            for (SlotTask task; (task = migration.parked.poll()) != null; ) {
+                pending.incrementAndGet(slot);
+                target.queue.add(task);
+            }
+            slotToLane.set(slot, migration.to);
+            migration.done = true;
+            migrationBySlot.compareAndSet(slot, migration, null);
+        }
+    }
+
+    private static final class Migration {
+        private final int to;
+        private final ArrayDeque<SlotTask> parked = new ArrayDeque<>();
+        private boolean done;
+
+        Migration(int to) {
+            this.to = to;
+        }
+    }
+
+    private final class SlotTask implements Runnable {
+        private final int slot;
+        private final Runnable task;
+
+        SlotTask(int slot, Runnable task) {
+            this.slot = slot;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                release(slot);
+                finished();
+            }
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+
+        Lane(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "partition-lane-" + index);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == SHUTDOWN) {
+                    return;
+                }
+                try {
+                    task.run();
+                    completed.increment();
+                } catch (Throwable t) {
+                    // One bad task must not stop every other key on this lane, even
+                    // with an Error or a sneaky-thrown checked exception
+                    failed.increment();
+                    t.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // Account transfers: per-account sequence numbers must arrive in order while one
+    // account takes half of all traffic. Prints lane depths before and after rebalancing.
+    public static void main(String[] args) throws InterruptedException {
+        int laneCount = 4;
+        int accounts = 64;
+        int operations = 200_000;
+        PartitionedExecutor executor = new PartitionedExecutor(laneCount, 50, TimeUnit.MILLISECONDS);
+        int[] lastSeen = new int[accounts];
+        Arrays.fill(lastSeen, -1);
+        int[] nextSequence = new int[accounts];
+        LongAdder outOfOrder = new LongAdder();
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int account = random.nextBoolean() ? 0 : 1 + random.nextInt(accounts - 1);
+            int sequence = nextSequence[account]++;
+            executor.execute("account-" + account, () -> {
+                // Only this account's lane touches lastSeen[account]
+                if (lastSeen[account] != sequence - 1) {
+                    outOfOrder.increment();
+                }
+                lastSeen[account] = sequence;
+                long acc = sequence;
+                for (int spin = 0; spin < 2_000; spin++) {
+                    acc = acc * 31 + spin;
+                }
+                if (acc == 42) {
+                    System.out.println();
+                }
+            });
+            if (i % 50_000 == 0) {
+                System.out.println("queue depths " + Arrays.toString(executor.getQueueDepths()));
+                Thread.sleep(20);
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf(Locale.ROOT, "%d operations in %.0f ms, out of order: %d%n",
+                operations, (System.nanoTime() - start) / 1e6, outOfOrder.sum());
+        System.out.print(executor.report());
+    }
+}
\ No newline at end of file
@@ -1,16 +1,172 @@
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.*;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.persistence.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
+// Fast-startup profile:
+//   java -jar app.jar --spring.profiles.active=fast-startup
+// enables lazy bean initialization and deferred JPA repository bootstrapping.
+//
+// Class-data-sharing archive (JDK 13+), generated from a training run that
+// exits right after the first successful /api/health response:
+//   java -XX:ArchiveClassesAtExit=app-cds.jsa -jar app.jar \
+//        --spring.profiles.active=fast-startup --startup.training-run=true
+//   curl localhost:8080/api/health
+//   java -XX:SharedArchiveFile=app-cds.jsa -jar app.jar --spring.profiles.active=fast-startup
+//
+// The startup timeline is printed after the first health response and is
+// available at GET /api/startup.
 @SpringBootApplication
 public class RestApiDemo {
+    static final String FAST_STARTUP_PROFILE = "fast-startup";
+
     public static void main(String[] args) {
-        SpringApplication.run(RestApiDemo.class, args);
+        SpringApplication app = new SpringApplication(RestApiDemo.class);
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(4096);
+        StartupTimelineRecorder timeline = new StartupTimelineRecorder(applicationStartup);
+        app.setApplicationStartup(applicationStartup);
+        app.addListeners(timeline);
+        app.addInitializers(context ->
+            context.getBeanFactory().registerSingleton("startupTimelineRecorder", timeline));
+
+        Map<String, Object> defaults = new HashMap<>();
+        // Idle SSE subscribers of /api/products/changes hold a connection but no thread
+        defaults.put("server.tomcat.max-connections", "50000");
+        if (isFastStartup(args)) {
+            app.setLazyInitialization(true);
+            defaults.put("spring.data.jpa.repositories.bootstrap-mode", "deferred");
+            defaults.put("spring.jpa.open-in-view", "false");
+            defaults.put("spring.jmx.enabled", "false");
+        }
+        app.setDefaultProperties(defaults);
+        app.run(args);
+    }
+
+    static boolean isFastStartup(String[] args) {
+        List<String> profiles = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--spring.profiles.active=")) {
+                profiles.add(arg.substring("--spring.profiles.active=".length()));
+            }
+        }
+        profiles.add(System.getProperty("spring.profiles.active", ""));
+        profiles.add(Optional.ofNullable(System.getenv("SPRING_PROFILES_ACTIVE")).orElse(""));
+        return profiles.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .anyMatch(profile -> FAST_STARTUP_PROFILE.equals(profile.trim()));
+    }
+}
+
+// Records the wall-clock offset (from JVM start) of each startup phase and of
+// the first successful /api/health response.
+class StartupTimelineRecorder implements ApplicationListener<SpringApplicationEvent> {
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final Map<String, Long> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicBoolean firstHealthRecorded = new AtomicBoolean();
+    private final BufferingApplicationStartup applicationStartup;
+    private volatile ConfigurableApplicationContext context;
+
+    StartupTimelineRecorder(BufferingApplicationStartup applicationStartup) {
+        this.applicationStartup = applicationStartup;
+    }
+
+    @Override
+    public void onApplicationEvent(SpringApplicationEvent event) {
+        if (event instanceof ApplicationPreparedEvent) {
+            context = ((ApplicationPreparedEvent) event).getApplicationContext();
+        }
+        record(event.getClass().getSimpleName().replace("Application", "").replace("Event", ""));
+    }
+
+    public void markFirstHealthy() {
+        if (!firstHealthRecorded.compareAndSet(false, true)) {
+            return;
+        }
+        record("FirstHealthResponse");
+        System.out.println(report());
+
+        if (context != null && context.getEnvironment().getProperty("startup.training-run", Boolean.class, false)) {
+            // Exit in the background so the health response is flushed first;
+            // the JVM then writes the CDS archive requested by -XX:ArchiveClassesAtExit.
+            new Thread(() -> System.exit(SpringApplication.exit(context)), "training-run-exit").start();
+        }
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        synchronized (phases) {
+            report.put("phasesMillisSinceJvmStart", new LinkedHashMap<>(phases));
+        }
+        report.put("timeToFirstHealthMillis", phases.get("FirstHealthResponse"));
+
+        StartupTimeline timeline = applicationStartup.getBufferedTimeline();
+        List<Map<String, Object>> slowestSteps = new ArrayList<>();
+        timeline.getEvents().stream()
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(10)
+                .forEach(step -> {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("step", step.getStartupStep().getName());
+                    entry.put("durationMillis", step.getDuration().toMillis());
+                    slowestSteps.add(entry);
+                });
+        report.put("slowestSteps", slowestSteps);
+        return report;
+    }
+
+    private void record(String phase) {
+        phases.putIfAbsent(phase, System.currentTimeMillis() - jvmStartMillis);
     }
 }
 
@@ -55,38 +211,286 @@ interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByNameContainingIgnoreCase(String name);
 }
 
+// The user operations UserController needs, so the backend can be swapped:
+// users.store=jpa (default) or users.store=lsm
+interface UserStore {
+    List<User> findAll();
+    Optional<User> findById(Long id);
+    Optional<User> findByEmail(String email);
+    List<User> findByNameContainingIgnoreCase(String name);
+    boolean existsById(Long id);
+    User save(User user);
+    void deleteById(Long id);
+}
+
+@Component
+@ConditionalOnProperty(name = "users.store", havingValue = "jpa", matchIfMissing = true)
+class JpaUserStore implements UserStore {
+    private final UserRepository userRepository;
+
+    JpaUserStore(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override public List<User> findAll() { return userRepository.findAll(); }
+    @Override public Optional<User> findById(Long id) { return userRepository.findById(id); }
+    @Override public Optional<User> findByEmail(String email) { return userRepository.findByEmail(email); }
+    @Override public List<User> findByNameContainingIgnoreCase(String name) { return userRepository.findByNameContainingIgnoreCase(name); }
+    @Override public boolean existsById(Long id) { return userRepository.existsById(id); }
+    @Override public User save(User user) { return userRepository.save(user); }
+    @Override public void deleteById(Long id) { userRepository.deleteById(id); }
+}
+
+// Users in the embedded LSM engine (LsmStorageEngine.java):
+//   user:id:<zero-padded id>  -> serialized user
+//   user:email:<email>        -> id (secondary index)
+@Component
+@ConditionalOnProperty(name = "users.store", havingValue = "lsm")
+class LsmUserStore implements UserStore, Closeable {
+    private static final String ID_PREFIX = "user:id:";
+    private static final String EMAIL_PREFIX = "user:email:";
+
+    private final LsmStorageEngine engine;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Autowired
+    LsmUserStore(@Value("${users.lsm.dir:data/users-lsm}") String directory) throws IOException {
+        this(Paths.get(directory));
+    }
+
+    LsmUserStore(Path directory) throws IOException {
+        this.engine = new LsmStorageEngine(directory);
+        engine.scan(ID_PREFIX, (key, value) ->
+                nextId.accumulateAndGet(Long.parseLong(key.substring(ID_PREFIX.length())) + 1, Math::max));
+    }
+
+    @Override
+    public List<User> findAll() {
+        List<User> users = new ArrayList<>();
+        scanUsers(users::add);
+        return users;
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return Optional.ofNullable(read(idKey(id))).map(LsmUserStore::decode);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        byte[] id = read(EMAIL_PREFIX + email);
+        return id == null ? Optional.empty() : findById(Long.valueOf(new String(id, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public List<User> findByNameContainingIgnoreCase(String name) {
+        String needle = name.toLowerCase();
+        List<User> users = new ArrayList<>();
+        scanUsers(user -> {
+            if (user.getName() != null && user.getName().toLowerCase().contains(needle)) {
+                users.add(user);
+            }
+        });
+        return users;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return read(idKey(id)) != null;
+    }
+
+    // Serialized so the email index always matches the stored user
+    @Override
+    public synchronized User save(User user) {
+        try {
+            // Same outcome as the unique email column in the JPA store
+            byte[] owner = read(EMAIL_PREFIX + user.getEmail());
+            if (owner != null && (user.getId() == null
+                    || !user.getId().toString().equals(new String(owner, StandardCharsets.UTF_8)))) {
+                throw new DataIntegrityViolationException("Email " + user.getEmail() + " already belongs to user "
+                        + new String(owner, StandardCharsets.UTF_8));
+            }
+            if (user.getId() == null) {
+                user.setId(nextId.getAndIncrement());
+            } else {
+                nextId.accumulateAndGet(user.getId() + 1, Math::max);
+                findById(user.getId())
+                        .filter(previous -> !previous.getEmail().equals(user.getEmail()))
+                        .ifPresent(previous -> deleteEmailIndex(previous.getEmail()));
+            }
+            engine.put(idKey(user.getId()), encode(user));
+            engine.put(EMAIL_PREFIX + user.getEmail(), user.getId().toString().getBytes(StandardCharsets.UTF_8));
+            return user;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void deleteById(Long id) {
+        try {
+            Optional<User> existing = findById(id);
+            if (existing.isPresent()) {
+                engine.delete(EMAIL_PREFIX + existing.get().getEmail());
+                engine.delete(idKey(id));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return engine.stats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        engine.close();
+    }
+
+    private void deleteEmailIndex(String email) {
+        try {
+            engine.delete(EMAIL_PREFIX + email);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] read(String key) {
+        try {
+            return engine.get(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void scanUsers(Consumer<User> consumer) {
+        try {
+            engine.scan(ID_PREFIX, (key, value) -> consumer.accept(decode(value)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String idKey(Long id) {
+        return String.format("%s%019d", ID_PREFIX, id);
+    }
+
+    private static byte[] encode(User user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(user.getId());
+            out.writeUTF(user.getName() != null ? user.getName() : "");
+            out.writeUTF(user.getEmail());
+            out.writeBoolean(user.getAge() != null);
+            out.writeInt(user.getAge() != null ? user.getAge() : 0);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static User decode(byte[] value) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value))) {
+            long id = in.readLong();
+            String name = in.readUTF();
+            String email = in.readUTF();
+            boolean hasAge = in.readBoolean();
+            int age = in.readInt();
+            User user = new User(name, email, hasAge ? age : null);
+            user.setId(id);
+            return user;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
+
+// Write/read comparison of the JPA and LSM user stores:
+//   java -jar app.jar --users.benchmark=true [--users.benchmark.count=20000]
+// JPA rows created by the benchmark are deleted afterwards.
+@Component
+@ConditionalOnProperty(name = "users.benchmark", havingValue = "true")
+class UserStoreBenchmark implements CommandLineRunner {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${users.benchmark.count:20000}")
+    private int count;
+
+    @Override
+    public void run(String... args) throws Exception {
+        System.out.println("=== UserStore benchmark: " + count + " users ===");
+        run("JPA", new JpaUserStore(userRepository));
+
+        Path directory = Files.createTempDirectory("users-lsm-bench");
+        try (LsmUserStore lsm = new LsmUserStore(directory)) {
+            run("LSM", lsm);
+            System.out.println("LSM engine stats: " + lsm.stats());
+        }
+    }
+
+    private void run(String label, UserStore store) {
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        List<Long> ids = new ArrayList<>(count);
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            ids.add(store.save(new User("User " + i, "bench-" + runId + "-" + i + "@example.com", 20 + i % 50)).getId());
+        }
+        long writeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            store.findById(ids.get(random.nextInt(count)));
+        }
+        long readByIdNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            store.findByEmail("bench-" + runId + "-" + random.nextInt(count) + "@example.com");
+        }
+        long readByEmailNanos = System.nanoTime() - start;
+
+        System.out.printf("%s: save %,.0f ops/s, findById %,.0f ops/s, findByEmail %,.0f ops/s%n", label,
+                count / (writeNanos / 1e9), count / (readByIdNanos / 1e9), count / (readByEmailNanos / 1e9));
+
+        ids.forEach(store::deleteById);
+    }
+}
+
 @RestController
 @RequestMapping("/api/users")
 class UserController {
     
     @Autowired
-    private UserRepository userRepository;
+    private UserStore userStore;
     
     @GetMapping
     public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userRepository.findAll();
+        List<User> users = userStore.findAll();
         return ResponseEntity.ok(users);
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        Optional<User> user = userRepository.findById(id);
+        Optional<User> user = userStore.findById(id);
         return user.map(ResponseEntity::ok)
                   .orElse(ResponseEntity.notFound().build());
     }
     
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody User user) {
-        if (userRepository.findByEmail(user.getEmail()).isPresent()) {
+        if (userStore.findByEmail(user.getEmail()).isPresent()) {
             return ResponseEntity.badRequest().body(null);
         }
-        User savedUser = userRepository.save(user);
+        User savedUser = userStore.save(user);
         return ResponseEntity.ok(savedUser);
     }
     
     @PutMapping("/{id}")
     public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userDetails) {
-        Optional<User> userOptional = userRepository.findById(id);
+        Optional<User> userOptional = userStore.findById(id);
         if (userOptional.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
@@ -94,28 +498,28 @@ class UserController {
         user.setName(userDetails.getName());
         user.setEmail(userDetails.getEmail());
         user.setAge(userDetails.getAge());
-        User updatedUser = userRepository.save(user);
+        User updatedUser = userStore.save(user);
         return ResponseEntity.ok(updatedUser);
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        if (!userRepository.existsById(id)) {
+        if (!userStore.existsById(id)) {
             return ResponseEntity.notFound().build();
         }
-        userRepository.deleteById(id);
+        userStore.deleteById(id);
         return ResponseEntity.noContent().build();
     }
     
     @GetMapping("/search")
     public ResponseEntity<List<User>> searchUsers(@RequestParam String name) {
-        List<User> users = userRepository.findByNameContainingIgnoreCase(name);
+        List<User> users = userStore.findByNameContainingIgnoreCase(name);
         return ResponseEntity.ok(users);
     }
     
     @GetMapping("/email/{email}")
     public ResponseEntity<User> getUserByEmail(@PathVariable String email) {
-        Optional<User> user = userRepository.findByEmail(email);
+        Optional<User> user = userStore.findByEmail(email);
         return user.map(ResponseEntity::ok)
                   .orElse(ResponseEntity.notFound().build());
     }
@@ -175,6 +579,9 @@ class ProductController {
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private ProductChangeBroadcaster changeBroadcaster;
+    
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts() {
         List<Product> products = productRepository.findAll();
@@ -191,6 +598,7 @@ class ProductController {
     @PostMapping
     public ResponseEntity<Product> createProduct(@RequestBody Product product) {
         Product savedProduct = productRepository.save(product);
+        changeBroadcaster.publish(ProductChangeEvent.created(savedProduct));
         return ResponseEntity.ok(savedProduct);
     }
     
@@ -206,6 +614,7 @@ class ProductController {
         product.setPrice(productDetails.getPrice());
         product.setStockQuantity(productDetails.getStockQuantity());
         Product updatedProduct = productRepository.save(product);
+        changeBroadcaster.publish(ProductChangeEvent.updated(updatedProduct));
         return ResponseEntity.ok(updatedProduct);
     }
     
@@ -215,9 +624,15 @@ class ProductController {
             return ResponseEntity.notFound().build();
         }
         productRepository.deleteById(id);
+        changeBroadcaster.publish(ProductChangeEvent.deleted(id));
         return ResponseEntity.noContent().build();
     }
     
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges() {
+        return changeBroadcaster.subscribe();
+    }
+    
     @GetMapping("/search")
     public ResponseEntity<List<Product>> searchProducts(@RequestParam String name) {
         List<Product> products = productRepository.findByNameContainingIgnoreCase(name);
@@ -235,15 +650,65 @@ class ProductController {
 @RequestMapping("/api")
 class HealthController {
     
+    @Autowired(required = false)
+    private StartupTimelineRecorder startupTimeline;
+    
+    @Autowired
+    private AllocationTrackingInterceptor allocationTracker;
+    
+    @Autowired
+    private StackSampler stackSampler;
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
         Map<String, String> response = new HashMap<>();
         response.put("status", "UP");
         response.put("timestamp", new Date().toString());
         response.put("service", "rest-api-demo");
+        if (startupTimeline != null) {
+            startupTimeline.markFirstHealthy();
+        }
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/startup")
+    public ResponseEntity<Map<String, Object>> getStartupTimeline() {
+        if (startupTimeline == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(startupTimeline.report());
+    }
+    
+    @GetMapping("/allocations")
+    public ResponseEntity<Map<String, Map<String, Object>>> getAllocations() {
+        return ResponseEntity.ok(allocationTracker.report());
+    }
+    
+    @GetMapping(value = "/profile", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> profile(@RequestParam(defaultValue = "10") int seconds,
+                                          @RequestParam(defaultValue = "all") String threads,
+                                          @RequestParam(defaultValue = "10") int intervalMs,
+                                          @RequestParam(defaultValue = "false") boolean runnableOnly) {
+        StackSampler.ThreadFilter filter;
+        try {
+            filter = StackSampler.ThreadFilter.valueOf(threads.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("threads must be one of: request, background, all\n");
+        }
+        if (seconds < 1 || seconds > StackSampler.MAX_SECONDS || intervalMs < 1) {
+            return ResponseEntity.badRequest()
+                    .body("seconds must be 1-" + StackSampler.MAX_SECONDS + " and intervalMs >= 1\n");
+        }
+        try {
+            return stackSampler.sample(seconds, intervalMs, filter, runnableOnly)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.status(409).body("A profile is already running\n"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(503).body("Profiling interrupted\n");
+        }
+    }
+    
     @GetMapping("/info")
     public ResponseEntity<Map<String, Object>> getInfo() {
         Map<String, Object> response = new HashMap<>();
@@ -253,6 +718,9 @@ class HealthController {
         response.put("endpoints", Arrays.asList(
             "GET /api/health",
             "GET /api/info",
+            "GET /api/startup",
+            "GET /api/allocations",
+            "GET /api/profile?seconds={n}&threads={request|background|all}",
             "GET /api/users",
             "POST /api/users",
             "GET /api/users/{id}",
@@ -266,7 +734,8 @@ class HealthController {
             "PUT /api/products/{id}",
             "DELETE /api/products/{id}",
             "GET /api/products/search?name={name}",
-            "GET /api/products/filter/price?maxPrice={price}"
+            "GET /api/products/filter/price?maxPrice={price}",
+            "GET /api/products/changes (text/event-stream)"
         ));
         return ResponseEntity.ok(response);
     }
@@ -320,4 +789,369 @@ class CalculatorController {
         response.put("result", a / b);
         return ResponseEntity.ok(response);
     }
+}
+
+// Bytes allocated by the request thread while a handler in one of the demo
+// controllers runs, bucketed per endpoint pattern (e.g. "GET /api/users/{id}").
+@Component
+class AllocationTrackingInterceptor implements HandlerInterceptor {
+    private static final String START_ATTRIBUTE = AllocationTrackingInterceptor.class.getName() + ".start";
+    private static final Set<Class<?>> TRACKED_CONTROLLERS = new HashSet<>(Arrays.asList(
+            UserController.class, ProductController.class, CalculatorController.class, HealthController.class));
+
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final boolean supported;
+    private final Map<String, AllocationHistogram> histograms = new ConcurrentHashMap<>();
+
+    AllocationTrackingInterceptor() {
+        this.threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.supported = threadMXBean.isThreadAllocatedMemorySupported();
+        if (supported && !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (supported && isTracked(handler)) {
+            request.setAttribute(START_ATTRIBUTE, currentThreadAllocatedBytes());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        // An async or error dispatch of the same request must not reuse this baseline
+        request.removeAttribute(START_ATTRIBUTE);
+        long allocated = currentThreadAllocatedBytes() - (Long) start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        histograms.computeIfAbsent(endpoint, key -> new AllocationHistogram()).record(allocated);
+    }
+
+    public Map<String, Map<String, Object>> report() {
+        Map<String, Map<String, Object>> report = new TreeMap<>();
+        histograms.forEach((endpoint, histogram) -> report.put(endpoint, histogram.summary()));
+        return report;
+    }
+
+    private boolean isTracked(Object handler) {
+        return handler instanceof HandlerMethod
+                && TRACKED_CONTROLLERS.contains(((HandlerMethod) handler).getBeanType());
+    }
+
+    private long currentThreadAllocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
+
+@Configuration
+class AllocationTrackingConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private AllocationTrackingInterceptor allocationTracker;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(allocationTracker).addPathPatterns("/api/**");
+    }
+}
+
+// Power-of-two buckets: bucket i holds values in [2^(i-1), 2^i), so the
+// reported percentiles are upper bounds within a factor of two.
+class AllocationHistogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long bytes) {
+        long value = Math.max(0, bytes);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    long percentile(double p) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        long rank = (long) Math.ceil(total * p);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return i == 0 ? 0 : Math.min(max.get(), (1L << i) - 1);
+            }
+        }
+        return 0;
+    }
+
+    Map<String, Object> summary() {
+        long n = count.sum();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", n);
+        summary.put("meanBytes", n == 0 ? 0 : sum.sum() / n);
+        summary.put("p50Bytes", percentile(0.50));
+        summary.put("p90Bytes", percentile(0.90));
+        summary.put("p99Bytes", percentile(0.99));
+        summary.put("maxBytes", max.get());
+        summary.put("totalBytes", sum.sum());
+        return summary;
+    }
+}
+
+// Wall-clock stack sampler producing collapsed stacks ("pool;frame;frame count")
+// for flamegraph.pl / speedscope. Only one profile runs at a time.
+@Component
+class StackSampler {
+    static final int MAX_SECONDS = 120;
+    private static final int MAX_DEPTH = 128;
+
+    enum ThreadFilter { REQUEST, BACKGROUND, ALL }
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public Optional<String> sample(int seconds, int intervalMs, ThreadFilter filter, boolean runnableOnly)
+            throws InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        try {
+            Map<String, Integer> stacks = new HashMap<>();
+            long self = Thread.currentThread().getId();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            int samples = 0;
+
+            while (System.nanoTime() < deadline) {
+                for (ThreadInfo info : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), MAX_DEPTH)) {
+                    if (info == null || info.getThreadId() == self || info.getStackTrace().length == 0) {
+                        continue;
+                    }
+                    if (runnableOnly && info.getThreadState() != Thread.State.RUNNABLE) {
+                        continue;
+                    }
+                    boolean requestThread = isRequestThread(info.getThreadName());
+                    if ((filter == ThreadFilter.REQUEST && !requestThread)
+                            || (filter == ThreadFilter.BACKGROUND && requestThread)) {
+                        continue;
+                    }
+                    stacks.merge(collapse(info), 1, Integer::sum);
+                }
+                samples++;
+                Thread.sleep(intervalMs);
+            }
+
+            StringBuilder out = new StringBuilder();
+            stacks.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(e -> out.append(e.getKey()).append(' ').append(e.getValue()).append('\n'));
+            System.out.println("Profile finished: " + samples + " samples, " + stacks.size() + " unique stacks");
+            return Optional.of(out.toString());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Tomcat request threads are named like "http-nio-8080-exec-7"
+    static boolean isRequestThread(String threadName) {
+        return threadName.startsWith("http-") && threadName.contains("-exec-");
+    }
+
+    private static String collapse(ThreadInfo info) {
+        StringBuilder stack = new StringBuilder(info.getThreadName().replaceAll("-?\\d+$", ""));
+        StackTraceElement[] frames = info.getStackTrace();
+        for (int i = frames.length - 1; i >= 0; i--) {
+            stack.append(';').append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+        }
+        return stack.toString();
+    }
+}
+
+class ProductChangeEvent {
+    private final String type;
+    private final Long productId;
+    private final Product product;
+    private final long timestamp;
+
+    private ProductChangeEvent(String type, Long productId, Product product) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    static ProductChangeEvent created(Product product) { return new ProductChangeEvent("CREATED", product.getId(), product); }
+    static ProductChangeEvent updated(Product product) { return new ProductChangeEvent("UPDATED", product.getId(), product); }
+    static ProductChangeEvent deleted(Long productId) { return new ProductChangeEvent("DELETED", productId, null); }
+
+    public String getType() { return type; }
+    public Long getProductId() { return productId; }
+    public Product getProduct() { return product; }
+    public long getTimestamp() { return timestamp; }
+}
+
+// Fans product changes out to SSE subscribers without ever blocking the write path:
+// publish() only drops the event into each subscriber's bounded, per-product
+// conflating buffer, and a flusher sends whatever accumulated as one batch
+// every FLUSH_INTERVAL_MS. Subscribers whose buffer overflows are disconnected.
+// Idle subscribers cost no thread and are only touched by the heartbeat.
+@Component
+class ProductChangeBroadcaster {
+    static final int BUFFER_CAPACITY = 256;
+    static final long FLUSH_INTERVAL_MS = 100;
+    static final long HEARTBEAT_INTERVAL_MS = 30_000;
+    private static final int SENDER_THREADS = 4;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Queue<Subscriber> dirty = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> daemon(runnable, "sse-flusher"));
+    private final ExecutorService senders = Executors.newFixedThreadPool(SENDER_THREADS,
+            runnable -> daemon(runnable, "sse-sender"));
+    private final LongAdder droppedSubscribers = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::flushDirty, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public void publish(ProductChangeEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            switch (subscriber.offer(event)) {
+                case BECAME_DIRTY:
+                    dirty.add(subscriber);
+                    break;
+                case OVERFLOW:
+                    drop(subscriber);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    public long droppedSubscriberCount() {
+        return droppedSubscribers.sum();
+    }
+
+    private void flushDirty() {
+        Subscriber subscriber;
+        while ((subscriber = dirty.poll()) != null) {
+            dispatch(subscriber);
+        }
+    }
+
+    private void heartbeat() {
+        long idleSince = System.currentTimeMillis() - HEARTBEAT_INTERVAL_MS;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.lastSendMillis < idleSince) {
+                dispatch(subscriber);
+            }
+        }
+    }
+
+    private void dispatch(Subscriber subscriber) {
+        if (subscribers.contains(subscriber) && subscriber.sending.compareAndSet(false, true)) {
+            senders.execute(() -> send(subscriber));
+        }
+        // else: a send is in flight and re-queues the subscriber if more events arrived
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            List<ProductChangeEvent> batch = subscriber.drain();
+            if (batch.isEmpty()) {
+                subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+            } else {
+                subscriber.emitter.send(SseEmitter.event().name("product-changes").data(batch, MediaType.APPLICATION_JSON));
+            }
+            subscriber.lastSendMillis = System.currentTimeMillis();
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            return;
+        } finally {
+            subscriber.sending.set(false);
+        }
+        if (subscriber.hasPending()) {
+            dirty.add(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            droppedSubscribers.increment();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    enum OfferResult { BUFFERED, BECAME_DIRTY, OVERFLOW }
+
+    static class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile long lastSendMillis = System.currentTimeMillis();
+        // Keyed by product id so a burst of updates to one product collapses to the latest
+        private final LinkedHashMap<Long, ProductChangeEvent> pending = new LinkedHashMap<>();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized OfferResult offer(ProductChangeEvent event) {
+            boolean wasEmpty = pending.isEmpty();
+            pending.remove(event.getProductId());
+            pending.put(event.getProductId(), event);
+            if (pending.size() > BUFFER_CAPACITY) {
+                return OfferResult.OVERFLOW;
+            }
+            return wasEmpty ? OfferResult.BECAME_DIRTY : OfferResult.BUFFERED;
+        }
+
+        synchronized List<ProductChangeEvent> drain() {
+            List<ProductChangeEvent> batch = new ArrayList<>(pending.values());
+            pending.clear();
+            return batch;
+        }
+
+        synchronized boolean hasPending() {
+            return !pending.isEmpty();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+// RingBufferLogModel.java
+// Bounded log for Swing UIs. Messages go into a fixed-size ring buffer; once it
+// is full the oldest lines are overwritten, so memory stays flat however much
+// is logged.
+//
+//   - append() is lock-free and safe from any thread: it claims a sequence
+//     number with one atomic increment and writes its slot; it never touches
+//     Swing and never blocks on the EDT
+//   - the view only grows up to the first sequence still being written, so a
+//     row is never shown before its line is in the buffer
+//   - the view is refreshed by a Swing Timer at a fixed frame rate, so a burst
+//     of 100k messages costs one repaint per frame, not one per message
+//   - the JList from createList() has a prototype cell value, so every row has
+//     the same height and only the visible rows are measured and painted
+//
+// Usage: java RingBufferLogModel [messages]
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class RingBufferLogModel extends AbstractListModel<String> {
+
+    private final AtomicReferenceArray<Line> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final Timer refreshTimer;
+    private JList<String> list;
+
+    // Rows the list currently shows: sequences [viewEnd - viewSize, viewEnd); EDT only
+    private long viewEnd;
+    private int viewSize;
+
+    // capacity is rounded up to a power of two
+    public RingBufferLogModel(int capacity, int framesPerSecond) {
+        if (capacity < 1 || framesPerSecond < 1) {
+            throw new IllegalArgumentException("capacity and framesPerSecond must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.refreshTimer = new Timer(1000 / framesPerSecond, e -> refresh());
+        refreshTimer.setCoalesce(true);
+    }
+
+    public void append(String message) {
+        long sequence = nextSequence.getAndIncrement();
+        int index = (int) (sequence & mask);
+        Line line = new Line(sequence, message);
+        while (true) {
+            Line current = slots.get(index);
+            // A writer from a later lap got here first; this line is already gone
+            if (current != null && current.sequence > sequence) {
+                return;
+            }
+            if (slots.compareAndSet(index, current, line)) {
+                return;
+            }
+        }
+    }
+
+    // A list showing this model that keeps scrolling to the newest line while the
+    // user is at the bottom; also starts the refresh timer
+    public JList<String> createList(int visibleRows) {
+        list = new JList<>(this);
+        list.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        list.setPrototypeCellValue("Inserted record successfully: Employee Name, employee@example.com, 30, Engineering");
+        list.setVisibleRowCount(visibleRows);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        refreshTimer.start();
+        return list;
+    }
+
+    public void stop() {
+        refreshTimer.stop();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public long getAppendedCount() {
+        return nextSequence.get();
+    }
+
+    public long getDroppedCount() {
+        return Math.max(0, nextSequence.get() - getCapacity());
+    }
+
+    @Override
+    public int getSize() {
+        return viewSize;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        long sequence = viewEnd - viewSize + index;
+        Line line = slots.get((int) (sequence & mask));
+        // Not written yet by its appender, or already overwritten by a newer line
+        return line != null && line.sequence == sequence ? line.text : "";
+    }
+
+    // Runs on the EDT once per frame and tells the list what changed since the last frame
+    void refresh() {
+        long end = publishedEnd();
+        if (end == viewEnd) {
+            return;
+        }
+        boolean followTail = list == null || viewSize == 0 || list.getLastVisibleIndex() >= viewSize - 1;
+        int oldSize = viewSize;
+        int newSize = (int) Math.min(end, getCapacity());
+        boolean shifted = end - newSize != viewEnd - oldSize;
+        viewEnd = end;
+        viewSize = newSize;
+
+        if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        }
+        if (shifted && oldSize > 0) {
+            fireContentsChanged(this, 0, oldSize - 1); // every existing row moved up
+        }
+        if (followTail && list != null) {
+            list.ensureIndexIsVisible(newSize - 1);
+        }
+    }
+
+    // End of the run of written lines that starts at viewEnd. A sequence is
+    // claimed before its slot is written; stopping at the first unwritten one
+    // means the next frame picks it up instead of leaving a blank row behind.
+    private long publishedEnd() {
+        long claimed = nextSequence.get();
+        long sequence = Math.max(viewEnd, claimed - getCapacity());
+        while (sequence < claimed) {
+            Line line = slots.get((int) (sequence & mask));
+            if (line == null || line.sequence < sequence) {
+                break;
+            }
+            sequence++;
+        }
+        return sequence;
+    }
+
+    private static final class Line {
+        final long sequence;
+        final String text;
+
+        Line(long sequence, String text) {
+            this.sequence = sequence;
+            this.text = text;
+        }
+    }
+
+    // Four threads log as fast as they can. Headless, this only measures append
+    // throughput; with a display the log window stays responsive meanwhile.
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        RingBufferLogModel model = new RingBufferLogModel(10_000, 30);
+        if (!GraphicsEnvironment.isHeadless()) {
+            SwingUtilities.invokeAndWait(() -> {
+                JFrame frame = new JFrame("Ring buffer log");
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                frame.add(new JScrollPane(model.createList(25)));
+                frame.pack();
+                frame.setLocationRelativeTo(null);
+                frame.setVisible(true);
+            });
+        }
+
+        int threads = 4;
+        Thread[] writers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int writer = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < messages / threads; i++) {
+                    model.append("writer " + writer + " message " + i);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        SwingUtilities.invokeAndWait(model::refresh);
+        System.out.printf(Locale.ROOT, "%,d appends from %d threads in %.2fs (%,.0f/s); keeping %d lines, "
+                + "dropped %,d%n", model.getAppendedCount(), threads, seconds, model.getAppendedCount() / seconds,
+                model.getSize(), model.getDroppedCount());
+        System.out.println("Last line: " + model.getElementAt(model.getSize() - 1));
+        if (GraphicsEnvironment.isHeadless()) {
+            model.stop();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,378 @@
+// StatementCache.java
+// Per-connection PreparedStatement cache. wrap() returns a Connection whose
+// prepareStatement(sql) hands out a statement that was already prepared for the
+// same SQL text when one is idle, instead of making the driver parse and plan it
+// again. Closing such a statement clears its parameters and batch and puts it
+// back in the connection's cache; closing the connection closes everything.
+//
+//   - keyed by the exact SQL text; only the one-argument prepareStatement is
+//     cached, the overloads with result set or generated-key options are not
+//   - LRU per connection (an access-ordered LinkedHashMap) with a configurable
+//     size; the least recently used idle statement is really closed on eviction
+//   - a statement is checked out while open, so two open statements for the
+//     same SQL on one connection are two different driver statements
+//   - hit/miss/eviction counts are shared by every connection one cache wraps
+//
+// Usage: java StatementCacheBenchmark [jdbcUrl user password]
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StatementCache {
+
+    private final int maxStatementsPerConnection;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicInteger cachedStatements = new AtomicInteger();
+
+    public StatementCache(int maxStatementsPerConnection) {
+        if (maxStatementsPerConnection < 1) {
+            throw new IllegalArgumentException("maxStatementsPerConnection must be positive");
+        }
+        this.maxStatementsPerConnection = maxStatementsPerConnection;
+    }
+
+    public Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new CachingConnection(connection));
+    }
+
+    public double getHitRate() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "hits=%d misses=%d hitRate=%.1f%% evictions=%d cached=%d",
+                hits.sum(), misses.sum(), getHitRate() * 100, evictions.sum(), cachedStatements.get());
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // Nothing useful to do with it
+        }
+    }
+
+    private final class CachingConnection implements InvocationHandler {
+        private final Connection raw;
+        // Idle statements only, least recently used first
+        private final LinkedHashMap<String, PreparedStatement> idle =
+                new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() <= maxStatementsPerConnection) {
+                            return false;
+                        }
+                        evictions.increment();
+                        cachedStatements.decrementAndGet();
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                };
+        private boolean closed;
+
+        CachingConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return prepare((Connection) proxy, (String) args[0]);
+                    }
+                    break;
+                case "close":
+                    closeAll();
+                    break;
+                case "toString":
+                    return "Caching[" + raw + "]";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    break;
+            }
+            return forward(raw, method, args);
+        }
+
+        private synchronized PreparedStatement prepare(Connection proxy, String sql) throws SQLException {
+            PreparedStatement statement = idle.remove(sql);
+            if (statement != null) {
+                hits.increment();
+                cachedStatements.decrementAndGet();
+            } else {
+                misses.increment();
+                statement = raw.prepareStatement(sql);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, new CachedStatement(proxy, sql, statement));
+        }
+
+        // Called when the caller closes a statement; false means it was not kept
+        private synchronized boolean checkIn(String sql, PreparedStatement statement) {
+            if (closed) {
+                return false;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                return false;
+            }
+            PreparedStatement displaced = idle.put(sql, statement);
+            if (displaced != null) {
+                closeQuietly(displaced); // two were open for the same SQL; keep one
+            } else {
+                cachedStatements.incrementAndGet();
+            }
+            return true;
+        }
+
+        private synchronized void closeAll() {
+            closed = true;
+            for (PreparedStatement statement : idle.values()) {
+                closeQuietly(statement);
+            }
+            cachedStatements.addAndGet(-idle.size());
+            idle.clear();
+        }
+
+        private final class CachedStatement implements InvocationHandler {
+            private final Connection connection;
+            private final String sql;
+            private final PreparedStatement statement;
+            private boolean closed;
+
+            CachedStatement(Connection connection, String sql, PreparedStatement statement) {
+                this.connection = connection;
+                this.sql = sql;
+                this.statement = statement;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            if (!checkIn(sql, statement)) {
+                                statement.close();
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "getConnection":
+                        return connection;
+                    case "toString":
+                        return "Cached[" + statement + "]";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        break;
+                }
+                if (closed) {
+                    throw new SQLException("Statement is closed");
+                }
+                return forward(statement, method, args);
+            }
+        }
+    }
+}
+
+// Latency of single-row inserts that prepare and close their statement every
+// time (as JdbcInsertDemo used to), without and with the cache. Uses an embedded
+// in-memory H2 database when it is on the classpath, otherwise a simulated
+// driver where preparing a statement costs about 20 us of parsing.
+class StatementCacheBenchmark {
+
+    private static final String INSERT_SQL = "INSERT INTO employees (name, email, age, department) VALUES (?, ?, ?, ?)";
+    private static final String[] QUERIES = {
+        INSERT_SQL,
+        "SELECT COUNT(*) FROM employees WHERE department = ?",
+        "SELECT name, email FROM employees WHERE age > ?",
+        "UPDATE employees SET age = ? WHERE email = ?"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:statement_cache;DB_CLOSE_DELAY=-1";
+        String user = args.length > 1 ? args[1] : "sa";
+        String password = args.length > 2 ? args[2] : "";
+        ConnectionPoolingDemo.ConnectionPool.ConnectionFactory factory;
+        try {
+            DriverManager.getConnection(url, user, password).close();
+            factory = ConnectionPoolingDemo.ConnectionPool.driverManager(url, user, password);
+            System.out.println("=== Statement cache benchmark on " + url + " ===");
+        } catch (SQLException e) {
+            factory = SimulatedDriver::connect;
+            System.out.println("=== Statement cache benchmark on a simulated driver (" + e.getMessage() + ") ===");
+        }
+
+        int inserts = 20_000;
+        try (Connection setup = factory.create(); Statement ddl = setup.createStatement()) {
+            ddl.execute(JdbcInsertDemo.CREATE_EMPLOYEES_TABLE_SQL);
+        }
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "-- warm-up --" : "-- measured --");
+            try (Connection connection = factory.create()) {
+                print("no cache", run(connection, inserts), "");
+            }
+            StatementCache cache = new StatementCache(QUERIES.length);
+            try (Connection connection = cache.wrap(factory.create())) {
+                print("cached", run(connection, inserts), cache.report());
+            }
+            // A cache smaller than the working set keeps evicting and gains little
+            StatementCache small = new StatementCache(2);
+            try (Connection connection = small.wrap(factory.create())) {
+                print("cached, size 2", runMixed(connection, inserts), small.report());
+            }
+        }
+    }
+
+    private static LatencyHistogram run(Connection connection, int inserts) throws SQLException {
+        LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 0; i < inserts; i++) {
+            long start = System.nanoTime();
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                bindInsert(statement, i);
+                statement.executeUpdate();
+            }
+            latency.record(System.nanoTime() - start);
+        }
+        return latency;
+    }
+
+    // Cycles through four statements; only the inserts are executed and timed
+    private static LatencyHistogram runMixed(Connection connection, int inserts) throws SQLException {
+        LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 0; i < inserts; i++) {
+            boolean insert = i % QUERIES.length == 0;
+            long start = System.nanoTime();
+            try (PreparedStatement statement = connection.prepareStatement(QUERIES[i % QUERIES.length])) {
+                if (insert) {
+                    bindInsert(statement, i);
+                    statement.executeUpdate();
+                }
+            }
+            if (insert) {
+                latency.record(System.nanoTime() - start);
+            }
+        }
+        return latency;
+    }
+
+    private static void bindInsert(PreparedStatement statement, int i) throws SQLException {
+        statement.setString(1, "Employee " + i);
+        statement.setString(2, "bench" + System.nanoTime() + "." + i + "@example.com");
+        statement.setInt(3, 20 + i % 45);
+        statement.setString(4, "Engineering");
+    }
+
+    private static void print(String label, LatencyHistogram latency, String extra) {
+        System.out.printf(Locale.ROOT, "%-15s %s %s%n", label, latency.summary(), extra);
+    }
+
+    // Preparing parses the SQL (about 20 us of work); executing is cheap
+    static final class SimulatedDriver {
+
+        static Connection connect() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "createStatement":
+                                return ddlStatement();
+                            case "prepareStatement":
+                                parse((String) args[0]);
+                                return statement();
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private static PreparedStatement statement() {
+            List<Object> parameters = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setString":
+                            case "setInt":
+                                parameters.add(args[1]);
+                                return null;
+                            case "clearParameters":
+                                parameters.clear();
+                                return null;
+                            case "executeUpdate":
+                                parameters.clear();
+                                return 1;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        // There is no schema to create; DDL succeeds and does nothing
+        private static Statement ddlStatement() {
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                    new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "execute":
+                                return false;
+                            case "executeUpdate":
+                                return 0;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private static void parse(String sql) {
+            long until = System.nanoTime() + 20_000 + sql.length();
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
\ No newline at end of file
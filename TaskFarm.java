@@ -0,0 +1,373 @@
+// TaskFarm.java
+// Coordinator/worker task farm across JVMs on one machine. Worker processes
+// connect to the coordinator over loopback TCP, receive batches of Serializable
+// tasks over object streams, run them on their own thread pool and send the
+// results back. Each worker has its own heap and GC, so CPU-heavy work is no
+// longer limited by what a single JVM's heap and collector can sustain.
+//
+// If a worker dies (the connection breaks), the batch it was working on goes
+// back to the front of the queue and another worker picks it up. A task that
+// has been through a failed batch is sent on its own from then on, and after
+// MAX_ATTEMPTS failed batches its future fails, so one poison task (say, with
+// a result that cannot be serialized) cannot take down every worker in turn.
+//
+// Usage: java TaskFarm [tasks] [maxWorkers]        (scaling + failure demo)
+//        java TaskFarmWorker <host> <port> [threads] (started by the coordinator)
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TaskFarm implements Closeable {
+
+    public interface FarmTask<T> extends Callable<T>, Serializable {
+    }
+
+    static final class Envelope implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final long id;
+        final FarmTask<?> task;
+        transient int attempts; // coordinator side only
+
+        Envelope(long id, FarmTask<?> task) {
+            this.id = id;
+            this.task = task;
+        }
+    }
+
+    static final class Result implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final long id;
+        final Object value;
+        final Throwable error;
+
+        Result(long id, Object value, Throwable error) {
+            this.id = id;
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final ServerSocket serverSocket;
+    private final int batchSize;
+    private final BlockingDeque<Envelope> pending = new LinkedBlockingDeque<>();
+    private final Map<Long, CompletableFuture<Object>> futures = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger connectedWorkers = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder requeued = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final List<Process> spawned = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public TaskFarm(int batchSize) throws IOException {
+        this.batchSize = batchSize;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "task-farm-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(FarmTask<T> task) {
+        if (closed) {
+            throw new RejectedExecutionException("TaskFarm is closed");
+        }
+        long id = nextId.getAndIncrement();
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        futures.put(id, future);
+        pending.add(new Envelope(id, task));
+        return (CompletableFuture<T>) future;
+    }
+
+    // Starts a worker JVM with the same classpath as this one
+    public Process spawnLocalWorker(int threads) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "TaskFarmWorker", "127.0.0.1", String.valueOf(getPort()), String.valueOf(threads))
+                .inheritIO()
+                .start();
+        spawned.add(process);
+        return process;
+    }
+
+    public boolean awaitWorkers(int count, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (connectedWorkers.get() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    public String report() {
+        return String.format(Locale.ROOT, "workers=%d completed=%d failed=%d batches=%d requeued=%d pending=%d",
+                connectedWorkers.get(), completed.sum(), failed.sum(), batches.sum(), requeued.sum(),
+                pending.size());
+    }
+
+    // Tells connected workers to exit and stops accepting new ones
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Process process : spawned) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        int workerNumber = 0;
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread handler = new Thread(() -> serve(socket), "task-farm-worker-" + ++workerNumber);
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void serve(Socket socket) {
+        connectedWorkers.incrementAndGet();
+        List<Envelope> batch = new ArrayList<>(batchSize);
+        try (Socket s = socket;
+             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(s.getOutputStream()));
+             ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(s.getInputStream()))) {
+            out.flush(); // let the worker's ObjectInputStream read our header right away
+            while (!closed) {
+                Envelope first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Retried tasks go alone, so a poison task cannot fail its neighbours again
+                while (first.attempts == 0 && batch.size() < batchSize) {
+                    Envelope next = pending.pollFirst();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next.attempts > 0) {
+                        pending.addFirst(next);
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                out.writeObject(batch);
+                out.reset(); // drop the stream's back-reference table between batches
+                out.flush();
+                batches.increment();
+
+                for (Result result : (List<Result>) in.readObject()) {
+                    CompletableFuture<Object> future = futures.remove(result.id);
+                    if (future == null) {
+                        continue;
+                    }
+                    completed.increment();
+                    if (result.error != null) {
+                        future.completeExceptionally(result.error);
+                    } else {
+                        future.complete(result.value);
+                    }
+                }
+                batch.clear();
+            }
+            out.writeObject(null); // shutdown signal
+            out.flush();
+        } catch (ClassNotFoundException e) {
+            // The worker sent something we cannot read: a protocol error, retrying will not help
+            for (Envelope envelope : batch) {
+                envelope.attempts++;
+                fail(envelope, e);
+            }
+        } catch (IOException e) {
+            // Worker died: its unfinished batch goes back to the front, in order
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                Envelope envelope = batch.get(i);
+                if (++envelope.attempts >= MAX_ATTEMPTS) {
+                    fail(envelope, e);
+                } else {
+                    pending.addFirst(envelope);
+                    requeued.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connectedWorkers.decrementAndGet();
+        }
+    }
+
+    private void fail(Envelope envelope, Exception cause) {
+        CompletableFuture<Object> future = futures.remove(envelope.id);
+        if (future != null) {
+            failed.increment();
+            future.completeExceptionally(new ExecutionException("Task " + envelope.id + " failed after "
+                    + envelope.attempts + " attempt(s): " + cause, cause));
+        }
+    }
+
+    // Counts primes in [from, from + span) by trial division: pure CPU, no shared state
+    static final class PrimeCountTask implements FarmTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int span;
+
+        PrimeCountTask(int from, int span) {
+            this.from = from;
+            this.span = span;
+        }
+
+        @Override
+        public Integer call() {
+            int count = 0;
+            for (int n = Math.max(2, from); n < from + span; n++) {
+                boolean prime = true;
+                for (int d = 2; (long) d * d <= n; d++) {
+                    if (n % d == 0) {
+                        prime = false;
+                        break;
+                    }
+                }
+                if (prime) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        System.out.printf(Locale.ROOT, "=== Task farm: %d prime-count tasks, %d cores ===%n",
+                tasks, Runtime.getRuntime().availableProcessors());
+
+        double baseline = 0;
+        for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+            try (TaskFarm farm = new TaskFarm(8)) {
+                for (int i = 0; i < workers; i++) {
+                    farm.spawnLocalWorker(1);
+                }
+                if (!farm.awaitWorkers(workers, 30, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Workers did not connect");
+                }
+                long start = System.nanoTime();
+                long primes = runTasks(farm, tasks);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                double rate = tasks / seconds;
+                if (baseline == 0) {
+                    baseline = rate;
+                }
+                System.out.printf(Locale.ROOT, "%d worker(s): %.2fs %7.1f tasks/s speedup %.2fx primes=%d%n",
+                        workers, seconds, rate, rate / baseline, primes);
+            }
+        }
+
+        // Kill one of two workers halfway through; its batch is re-queued and the total stays correct
+        try (TaskFarm farm = new TaskFarm(8)) {
+            Process victim = farm.spawnLocalWorker(1);
+            farm.spawnLocalWorker(1);
+            farm.awaitWorkers(2, 30, TimeUnit.SECONDS);
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                results.add(farm.submit(new PrimeCountTask(i * 20_000, 20_000)));
+            }
+            Thread.sleep(500);
+            victim.destroyForcibly();
+            long primes = 0;
+            for (CompletableFuture<Integer> result : results) {
+                primes += result.get(5, TimeUnit.MINUTES);
+            }
+            System.out.println("After killing a worker: primes=" + primes + ", " + farm.report());
+        }
+    }
+
+    private static long runTasks(TaskFarm farm, int tasks) throws Exception {
+        List<CompletableFuture<Integer>> results = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            results.add(farm.submit(new PrimeCountTask(i * 20_000, 20_000)));
+        }
+        long primes = 0;
+        for (CompletableFuture<Integer> result : results) {
+            primes += result.get(5, TimeUnit.MINUTES);
+        }
+        return primes;
+    }
+}
+
+// Worker process: pulls batches from the coordinator until it receives null,
+// runs each batch on a local pool and sends the results back as one message
+class TaskFarmWorker {
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try (Socket socket = new Socket(host, port);
+             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            out.flush(); // the coordinator's ObjectInputStream waits for our stream header
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                List<TaskFarm.Envelope> batch = (List<TaskFarm.Envelope>) in.readObject();
+                if (batch == null) {
+                    break;
+                }
+                List<Future<Object>> running = new ArrayList<>(batch.size());
+                for (TaskFarm.Envelope envelope : batch) {
+                    running.add(pool.submit((Callable<Object>) envelope.task));
+                }
+                List<TaskFarm.Result> results = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    long id = batch.get(i).id;
+                    try {
+                        results.add(new TaskFarm.Result(id, running.get(i).get(), null));
+                    } catch (ExecutionException e) {
+                        results.add(new TaskFarm.Result(id, null, e.getCause()));
+                    }
+                }
+                out.writeObject(results);
+                out.reset();
+                out.flush();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
\ No newline at end of file
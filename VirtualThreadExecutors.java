@@ -0,0 +1,261 @@
+// VirtualThreadExecutors.java
+// Virtual-thread-per-task executors for blocking, sleep-heavy work such as
+// ExecutorServiceDemo's SimpleTask and CalculationTask, plus a pinning monitor.
+//
+// The code is compiled against Java 17, so Executors.newVirtualThreadPerTaskExecutor
+// (Java 21) is looked up reflectively; isSupported() tells callers whether to
+// fall back to platform threads.
+//
+// A virtual thread that blocks inside a synchronized block (or native frame)
+// pins its carrier thread, which quietly turns "a million threads" back into
+// "as many as there are carriers". PinningMonitor streams the JFR event
+// jdk.VirtualThreadPinned and counts pinned blocks per top application frame.
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+public class VirtualThreadExecutors {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreadExecutors() {
+    }
+
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    // One new virtual thread per task; close() or shutdown() + awaitTermination as usual
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later, running on "
+                    + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread executor", e);
+        }
+    }
+
+    public static PinningMonitor startPinningMonitor(Duration threshold) {
+        return new PinningMonitor(threshold);
+    }
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static final class PinningMonitor implements AutoCloseable {
+        private static final String EVENT = "jdk.VirtualThreadPinned";
+
+        private final RecordingStream stream = new RecordingStream();
+        private final LongAdder pinnedEvents = new LongAdder();
+        private final AtomicLong pinnedNanos = new AtomicLong();
+        private final Map<String, LongAdder> byFrame = new ConcurrentHashMap<>();
+
+        private PinningMonitor(Duration threshold) {
+            // Unknown event names are ignored, so this is a no-op before Java 21
+            stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(EVENT, event -> {
+                pinnedEvents.increment();
+                pinnedNanos.addAndGet(event.getDuration().toNanos());
+                byFrame.computeIfAbsent(topApplicationFrame(event.getStackTrace()), f -> new LongAdder())
+                        .increment();
+            });
+            stream.startAsync();
+        }
+
+        public long getPinnedCount() {
+            return pinnedEvents.sum();
+        }
+
+        public String report() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "pinned blocks=%d total pinned time=%s",
+                    pinnedEvents.sum(), LatencyHistogram.format(pinnedNanos.get())));
+            byFrame.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .limit(5)
+                    .forEach(e -> sb.append(String.format(Locale.ROOT, "%n  %6d x %s", e.getValue().sum(), e.getKey())));
+            return sb.toString();
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+        }
+
+        // First frame outside the JDK, which is usually the synchronized method or block
+        private static String topApplicationFrame(RecordedStackTrace stackTrace) {
+            if (stackTrace == null) {
+                return "<no stack trace>";
+            }
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                    return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                }
+            }
+            return "<JDK internal>";
+        }
+    }
+}
+
+// Fixed, cached and virtual execution of 10k / 100k / 1M concurrent sleeping tasks
+// (SimpleTask-shaped: a short sleep and a counter), measuring wall time,
+// throughput, peak heap, peak live threads and resident memory.
+//
+// Platform-thread runs are guarded so the suite cannot take down the machine:
+// cached pools are skipped when they would need more threads than the OS
+// allows, and fixed pools when the projected run exceeds the time budget.
+// Usage: java ExecutorComparisonSuite [sleepMillis] [fixedThreads] [maxSecondsPerRun]
+class ExecutorComparisonSuite {
+
+    public static void main(String[] args) throws Exception {
+        long sleepMillis = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        int fixedThreads = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        long maxSeconds = args.length > 2 ? Long.parseLong(args[2]) : 60;
+        long platformThreadLimit = platformThreadLimit();
+
+        System.out.printf(Locale.ROOT, "=== %dms sleeping tasks on Java %s, platform thread limit ~%d ===%n",
+                sleepMillis, System.getProperty("java.version"), platformThreadLimit);
+        System.out.printf(Locale.ROOT, "%-14s %9s %9s %13s %10s %9s %9s%n",
+                "executor", "tasks", "wall", "tasks/s", "peak heap", "threads", "rss");
+
+        for (int tasks : new int[]{10_000, 100_000, 1_000_000}) {
+            double projected = (double) tasks * sleepMillis / 1000 / fixedThreads;
+            if (projected > maxSeconds) {
+                skip("fixed(" + fixedThreads + ")", tasks, String.format(Locale.ROOT,
+                        "projected %.0fs > %ds budget", projected, maxSeconds));
+            } else {
+                run("fixed(" + fixedThreads + ")", Executors.newFixedThreadPool(fixedThreads), tasks, sleepMillis);
+            }
+
+            if (tasks > platformThreadLimit / 2) {
+                skip("cached", tasks, "would need ~" + tasks + " platform threads");
+            } else {
+                run("cached", Executors.newCachedThreadPool(), tasks, sleepMillis);
+            }
+
+            if (VirtualThreadExecutors.isSupported()) {
+                try (VirtualThreadExecutors.PinningMonitor pinning =
+                             VirtualThreadExecutors.startPinningMonitor(Duration.ofMillis(10))) {
+                    run("virtual", VirtualThreadExecutors.newVirtualThreadPerTaskExecutor(), tasks, sleepMillis);
+                    Thread.sleep(1_000); // JFR delivers events about once a second
+                    System.out.println("  " + pinning.report());
+                }
+            } else {
+                skip("virtual", tasks, "needs Java 21+");
+            }
+        }
+    }
+
+    private static void run(String label, ExecutorService executor, int tasks, long sleepMillis)
+            throws InterruptedException {
+        System.gc();
+        LongAdder completed = new LongAdder();
+        MemorySampler sampler = new MemorySampler();
+        sampler.start();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(sleepMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    completed.increment();
+                });
+            }
+        } catch (RejectedExecutionException | OutOfMemoryError e) {
+            System.out.printf(Locale.ROOT, "%-14s %9d failed after %d submissions: %s%n", label, tasks,
+                    completed.sum(), e);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+        sampler.finish();
+        System.out.printf(Locale.ROOT, "%-14s %9d %8.2fs %13.0f %9dM %9d %8dM%n", label, tasks, elapsed / 1e9,
+                completed.sum() / (elapsed / 1e9), sampler.peakHeap >> 20, sampler.peakThreads,
+                sampler.peakRss >> 20);
+    }
+
+    private static void skip(String label, int tasks, String reason) {
+        System.out.printf(Locale.ROOT, "%-14s %9d skipped: %s%n", label, tasks, reason);
+    }
+
+    private static long platformThreadLimit() {
+        try {
+            return Long.parseLong(Files.readAllLines(Paths.get("/proc/sys/kernel/threads-max")).get(0).trim());
+        } catch (IOException | RuntimeException e) {
+            return 10_000;
+        }
+    }
+
+    // Samples heap, live platform threads and RSS every 50ms while a run is going
+    private static final class MemorySampler extends Thread {
+        private static final Path STATUS = Paths.get("/proc/self/status");
+        private volatile boolean running = true;
+        private long peakHeap;
+        private int peakThreads;
+        private long peakRss;
+
+        MemorySampler() {
+            super("memory-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+            while (running) {
+                peakHeap = Math.max(peakHeap, runtime.totalMemory() - runtime.freeMemory());
+                peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+                peakRss = Math.max(peakRss, residentBytes());
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void finish() throws InterruptedException {
+            running = false;
+            interrupt();
+            join();
+        }
+
+        private static long residentBytes() {
+            try {
+                for (String line : Files.readAllLines(STATUS)) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // Not on Linux: leave RSS at zero
+            }
+            return 0;
+        }
+    }
+}
\ No newline at end of file